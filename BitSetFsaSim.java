@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+// Nondeterministic simulation of an Fsa over bit sets
+// States are numbered densely and the epsilon closure of every state is
+// computed once, so a step only ORs precomputed closures into the next
+// set of current states. Unlike FsaImpl, no State objects are touched and
+// no listeners are notified. Later changes to the Fsa are not seen.
+public class BitSetFsaSim implements FsaSim
+{
+    private final FsaTables tables;
+
+    // Epsilon closure of each state, or null if the state has no epsilon transitions
+    private final long[][] closure;
+
+    private long[] current;
+    private long[] next;
+    private boolean isActive;
+
+    public BitSetFsaSim(Fsa fsa)
+    {
+        this(fsa.freeze().tables());
+    }
+
+    public BitSetFsaSim(FsaTables tables)
+    {
+        this.tables = tables;
+
+        // Precompute epsilon closures
+        int n = tables.stateCount();
+        int words = StateSet.wordCount(n);
+        int[] stack = new int[n];
+        closure = new long[n][];
+        for (int s = 0; s < n; s++)
+        {
+            if (tables.epsStart(s) < tables.epsStart(s + 1))
+            {
+                closure[s] = new long[words];
+                StateSet.add(closure[s], s);
+                tables.close(closure[s], stack);
+            }
+        }
+
+        current = new long[words];
+        next = new long[words];
+        isActive = false;
+    }
+
+    // Add the epsilon closure of state s to the set
+    private void addClosure(long[] set, int s)
+    {
+        long[] c = closure[s];
+        if (c == null)
+        {
+            StateSet.add(set, s);
+        }
+        else
+        {
+            for (int w = 0; w < set.length; w++)
+            {
+                set[w] |= c[w];
+            }
+        }
+    }
+
+    //Reset the simulation to its initial state(s)
+    public void reset()
+    {
+        isActive = true;
+
+        // Current states are the closure of the initial states
+        Arrays.fill(current, 0);
+        long[] initial = tables.initialSet();
+        for (int w = 0; w < initial.length; w++)
+        {
+            long word = initial[w];
+            while (word != 0)
+            {
+                addClosure(current, (w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    //Take one step in the simulation
+    public void step(String event)
+    {
+        // The current set is always epsilon-closed, so an epsilon step changes nothing
+        if (!isActive || event == null)
+        {
+            return;
+        }
+
+        int a = tables.symbolOf(event);
+        Arrays.fill(next, 0);
+        if (a >= 0)
+        {
+            // Follow matching transitions from every current state
+            for (int w = 0; w < current.length; w++)
+            {
+                long word = current[w];
+                while (word != 0)
+                {
+                    int s = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    for (int e = tables.edgeStart(s); e < tables.edgeStart(s + 1); e++)
+                    {
+                        if (tables.edgeSymbol(e) == a)
+                        {
+                            addClosure(next, tables.edgeTarget(e));
+                        }
+                    }
+                }
+            }
+        }
+
+        // Swap buffers
+        long[] previous = current;
+        current = next;
+        next = previous;
+    }
+
+    //Returns true if the simulation has recognised
+    //the sequence of events it has been given
+    public boolean isRecognised()
+    {
+        return isActive && StateSet.intersects(current, tables.finalSet());
+    }
+}
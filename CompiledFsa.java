@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+// Deterministic simulation of an Fsa
+// The FSA is determinised once by subset construction when the CompiledFsa
+// is created; each step is then a single table lookup. Later changes to
+// the Fsa are not seen by the CompiledFsa.
+// The compiled tables are immutable: recognises() and recogniseAll() keep
+// their state in local variables and may be called from many threads at
+// once. Only the FsaSim methods (reset/step/isRecognised) use the mutable
+// current state of a CompiledFsa.
+public class CompiledFsa implements FsaSim
+{
+    // DFA state of the empty set of FSA states
+    public static final int DEAD = -1;
+
+    private final FsaTables tables;
+    private final int symbolCount;
+    private final int start;
+    private final int[] next;
+    private final boolean[] accepting;
+
+    private int current;
+    private boolean isActive;
+
+    public CompiledFsa(Fsa fsa)
+    {
+        this(fsa.freeze().tables());
+    }
+
+    public CompiledFsa(FsaTables tables)
+    {
+        this.tables = tables;
+        symbolCount = tables.symbolCount();
+
+        HashMap<StateSet, Integer> ids = new HashMap<>();
+        ArrayList<long[]> sets = new ArrayList<>();
+        int[] table = new int[16 * Math.max(symbolCount, 1)];
+        int[] stack = new int[tables.stateCount()];
+
+        // Start from the epsilon closure of the initial states
+        long[] initial = tables.initialSet();
+        tables.close(initial);
+        start = StateSet.isEmpty(initial) ? DEAD : addState(initial, ids, sets);
+
+        // Determinise every DFA state discovered so far
+        for (int d = 0; d < sets.size(); d++)
+        {
+            // Collect the successors of each member state, grouped by symbol
+            long[] set = sets.get(d);
+            long[][] targets = new long[symbolCount][];
+            for (int w = 0; w < set.length; w++)
+            {
+                long word = set[w];
+                while (word != 0)
+                {
+                    int s = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    for (int e = tables.edgeStart(s); e < tables.edgeStart(s + 1); e++)
+                    {
+                        int a = tables.edgeSymbol(e);
+                        if (targets[a] == null)
+                        {
+                            targets[a] = new long[set.length];
+                        }
+                        StateSet.add(targets[a], tables.edgeTarget(e));
+                    }
+                }
+            }
+
+            // Record the DFA transitions of this state
+            if ((d + 1) * symbolCount > table.length)
+            {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            for (int a = 0; a < symbolCount; a++)
+            {
+                if (targets[a] == null)
+                {
+                    table[d * symbolCount + a] = DEAD;
+                }
+                else
+                {
+                    tables.close(targets[a], stack);
+                    table[d * symbolCount + a] = addState(targets[a], ids, sets);
+                }
+            }
+        }
+
+        // Mark DFA states containing a final state as accepting
+        next = Arrays.copyOf(table, sets.size() * symbolCount);
+        accepting = new boolean[sets.size()];
+        for (int d = 0; d < sets.size(); d++)
+        {
+            accepting[d] = StateSet.intersects(sets.get(d), tables.finalSet());
+        }
+        isActive = false;
+    }
+
+    // Return the id of the DFA state for the given set, adding it if it is new
+    private static int addState(long[] set, HashMap<StateSet, Integer> ids, ArrayList<long[]> sets)
+    {
+        Integer id = ids.putIfAbsent(new StateSet(set), sets.size());
+        if (id != null)
+        {
+            return id;
+        }
+        sets.add(set);
+        return sets.size() - 1;
+    }
+
+    // Return the number of DFA states
+    public int stateCount()
+    {
+        return accepting.length;
+    }
+
+    // Return the tables the DFA was compiled from
+    FsaTables tables()
+    {
+        return tables;
+    }
+
+    // Return the number of event names
+    int symbolCount()
+    {
+        return symbolCount;
+    }
+
+    // Return the event name numbered a
+    String symbolName(int a)
+    {
+        return tables.symbolName(a);
+    }
+
+    // Return the DFA state the simulation starts in (DEAD if there is none)
+    int startState()
+    {
+        return start;
+    }
+
+    // Return the DFA state reached from state d on event name a (or DEAD)
+    int next(int d, int a)
+    {
+        return next[d * symbolCount + a];
+    }
+
+    // Indicate if DFA state d recognises the events that led to it
+    boolean isAccepting(int d)
+    {
+        return accepting[d];
+    }
+
+    //Reset the simulation to its initial state(s)
+    public void reset()
+    {
+        isActive = true;
+        current = start;
+    }
+
+    //Take one step in the simulation
+    public void step(String event)
+    {
+        // DFA states are epsilon-closed, so an epsilon step changes nothing
+        if (!isActive || event == null || current == DEAD)
+        {
+            return;
+        }
+
+        int a = tables.symbolOf(event);
+        current = a < 0 ? DEAD : next[current * symbolCount + a];
+    }
+
+    //Returns true if the simulation has recognised
+    //the sequence of events it has been given
+    public boolean isRecognised()
+    {
+        return isActive && current != DEAD && accepting[current];
+    }
+
+    // Returns true if the FSA recognises the given sequence of events
+    // Does not affect the state of the simulation
+    public boolean recognises(List<String> trace)
+    {
+        int d = start;
+        for (int i = 0, n = trace.size(); i < n && d != DEAD; i++)
+        {
+            String event = trace.get(i);
+            if (event != null)
+            {
+                int a = tables.symbolOf(event);
+                d = a < 0 ? DEAD : next[d * symbolCount + a];
+            }
+        }
+        return d != DEAD && accepting[d];
+    }
+
+    // Run every trace through the FSA
+    // Returns a set whose bit i is set if trace i is recognised
+    // Does not affect the state of the simulation
+    public BitSet recogniseAll(List<? extends List<String>> traces)
+    {
+        return recogniseAll(traces.iterator());
+    }
+
+    // Run every trace supplied by the iterator through the FSA
+    // Returns a set whose bit i is set if the i-th trace is recognised
+    // Does not affect the state of the simulation
+    public BitSet recogniseAll(Iterator<? extends List<String>> traces)
+    {
+        BitSet result = new BitSet();
+        for (int i = 0; traces.hasNext(); i++)
+        {
+            if (recognises(traces.next()))
+            {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+}
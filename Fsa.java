@@ -58,6 +58,15 @@ public interface Fsa
 
     //Returns a set containing all the current states of this FSA
     public Set<State> getCurrentStates();
+
+
+    //Return an immutable copy of this Fsa that can be read and simulated
+    //by any number of threads while this Fsa continues to change
+    //Must be called from the thread that modifies this Fsa (or while it
+    //is not being modified); other threads can only be handed a snapshot.
+    //The snapshot is a copy, taken in O(n + m) time for n states and m
+    //transitions, not a view that shares structure with this Fsa.
+    public FsaSnapshot freeze();
     
 
     //Return a string describing this Fsa
@@ -79,4 +88,24 @@ public interface Fsa
 
     //Remove a listener from this FSA
     public void removeListener(FsaListener fl);
+
+
+    //Add a listener that is told what has changed to this FSA
+    public void addChangeListener(FsaChangeListener fcl);
+
+
+    //Remove a change listener from this FSA
+    public void removeChangeListener(FsaChangeListener fcl);
+
+
+    //Start a batch of changes to this FSA
+    //Listeners are not notified until the matching endUpdate() call,
+    //and are then notified at most once of each kind of change.
+    //Batches may be nested.
+    public void beginUpdate();
+
+
+    //End a batch of changes to this FSA started by beginUpdate()
+    //Throws IllegalStateException if there is no batch to end
+    public void endUpdate();
 }
@@ -0,0 +1,276 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Reads and writes FSAs in the compact binary .fsab format
+// The format is (all counts and numbers as unsigned LEB128 varints,
+// coordinates zigzag-encoded, strings as a varint byte length followed
+// by UTF-8 bytes):
+//   "FSAB" version
+//   stateCount   { name x y flags }      flags: 1 = initial, 2 = final
+//   eventCount   { eventName }
+//   transitionCount { from event to }    states by index, event 0 = epsilon,
+//                                        otherwise 1 + index of event name
+// It holds exactly the same information as the text format, so a machine
+// can be converted between the two without loss.
+class FsaBinaryReaderWriter implements FsaStreamIo
+{
+    private static final byte[] MAGIC = {'F', 'S', 'A', 'B'};
+    private static final int VERSION = 1;
+
+    private static final int INITIAL = 1;
+    private static final int FINAL = 2;
+
+    // Most items allocated in advance for a count read from the file; larger
+    // tables and strings grow as they are read, so a corrupt count ends in
+    // an FsaFormatException at the end of the file instead of exhausting memory
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    public FsaBinaryReaderWriter()
+    {
+
+    }
+
+    //Read the description of a finite-state automaton from the
+    //InputStream, in, and transfer it to Fsa, f.
+    //If an error is detected, throw an exception that indicates the
+    //record (counting states, then transitions, from 1) where the error
+    //was detected, and has a suitable text message
+    public void read(InputStream in, Fsa f)
+            throws IOException, FsaFormatException
+    {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        int record = 0;
+
+        // Notify listeners of the FSA once at the end
+        f.beginUpdate();
+        try
+        {
+            // Check header
+            byte[] magic = new byte[MAGIC.length];
+            din.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC))
+            {
+                throw new FsaFormatException(0, "Not a binary FSA file!");
+            }
+            int version = din.readUnsignedByte();
+            if (version != VERSION)
+            {
+                throw new FsaFormatException(0, "Unsupported binary FSA version " + version + "!");
+            }
+
+            // Read states
+            int stateCount = readCount(din, record);
+            ArrayList<State> states = new ArrayList<>(Math.min(stateCount, INITIAL_CAPACITY));
+            for (int i = 0; i < stateCount; i++)
+            {
+                record++;
+                String name = readString(din, record);
+                int x = readSigned(din, record);
+                int y = readSigned(din, record);
+                int flags = din.readUnsignedByte();
+                State state;
+                try
+                {
+                    state = f.newState(name, x, y);
+                }
+                catch (IllegalArgumentException ex)
+                {
+                    throw new FsaFormatException(record, "Record " + record + ": Invalid state record arguments!");
+                }
+                if ((flags & INITIAL) != 0)
+                {
+                    state.setInitial(true);
+                }
+                if ((flags & FINAL) != 0)
+                {
+                    state.setFinal(true);
+                }
+                states.add(state);
+            }
+
+            // Read event names
+            int eventCount = readCount(din, record);
+            ArrayList<String> events = new ArrayList<>(Math.min(eventCount, INITIAL_CAPACITY));
+            for (int i = 0; i < eventCount; i++)
+            {
+                events.add(readString(din, record));
+            }
+
+            // Read transitions
+            int transitionCount = readCount(din, record);
+            for (int i = 0; i < transitionCount; i++)
+            {
+                record++;
+                int from = readVarint(din, record);
+                int event = readVarint(din, record);
+                int to = readVarint(din, record);
+                if (from < 0 || from >= states.size() || to < 0 || to >= states.size() || event < 0 || event > events.size())
+                {
+                    throw new FsaFormatException(record, "Record " + record + ": Invalid transition record syntax!");
+                }
+                try
+                {
+                    f.newTransition(states.get(from), states.get(to), event == 0 ? null : events.get(event - 1));
+                }
+                catch (IllegalArgumentException ex)
+                {
+                    throw new FsaFormatException(record, "Record " + record + ": Invalid transition record arguments!");
+                }
+            }
+        }
+        catch (EOFException ex)
+        {
+            throw new FsaFormatException(record, "Record " + record + ": Unexpected end of file!");
+        }
+        finally
+        {
+            f.endUpdate();
+        }
+    }
+
+    //Write a representation of the Fsa, f, to the OutputStream, out.
+    public void write(OutputStream out, Fsa f)
+            throws IOException
+    {
+        FsaSnapshot snapshot = f.freeze();
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+
+        // Write header
+        dout.write(MAGIC);
+        dout.writeByte(VERSION);
+
+        // Write states
+        writeVarint(dout, snapshot.stateCount());
+        for (int s = 0; s < snapshot.stateCount(); s++)
+        {
+            writeString(dout, snapshot.stateName(s));
+            writeSigned(dout, snapshot.getXpos(s));
+            writeSigned(dout, snapshot.getYpos(s));
+            dout.writeByte((snapshot.isInitial(s) ? INITIAL : 0) | (snapshot.isFinal(s) ? FINAL : 0));
+        }
+
+        // Number event names in order of first use
+        HashMap<String, Integer> eventIndex = new HashMap<>();
+        for (int t = 0; t < snapshot.transitionCount(); t++)
+        {
+            String event = snapshot.transitionEvent(t);
+            if (event != null)
+            {
+                eventIndex.putIfAbsent(event, eventIndex.size() + 1);
+            }
+        }
+        String[] events = new String[eventIndex.size()];
+        for (String event : eventIndex.keySet())
+        {
+            events[eventIndex.get(event) - 1] = event;
+        }
+
+        // Write event names
+        writeVarint(dout, events.length);
+        for (String event : events)
+        {
+            writeString(dout, event);
+        }
+
+        // Write transitions
+        writeVarint(dout, snapshot.transitionCount());
+        for (int s = 0; s < snapshot.stateCount(); s++)
+        {
+            for (int t = snapshot.transitionStart(s); t < snapshot.transitionStart(s + 1); t++)
+            {
+                String event = snapshot.transitionEvent(t);
+                writeVarint(dout, s);
+                writeVarint(dout, event == null ? 0 : eventIndex.get(event));
+                writeVarint(dout, snapshot.transitionTo(t));
+            }
+        }
+
+        // Flush buffered output, leaving out open for the caller
+        dout.flush();
+    }
+
+    // Read an unsigned varint, as part of the given record (for errors)
+    private static int readVarint(DataInputStream in, int record)
+            throws IOException, FsaFormatException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new FsaFormatException(record, "Record " + record + ": Invalid number in binary FSA file!");
+    }
+
+    // Read an unsigned varint that counts following items
+    private static int readCount(DataInputStream in, int record)
+            throws IOException, FsaFormatException
+    {
+        int count = readVarint(in, record);
+        if (count < 0)
+        {
+            throw new FsaFormatException(record, "Record " + record + ": Invalid count in binary FSA file!");
+        }
+        return count;
+    }
+
+    // Read a zigzag-encoded signed varint
+    private static int readSigned(DataInputStream in, int record)
+            throws IOException, FsaFormatException
+    {
+        int value = readVarint(in, record);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Read a length-prefixed UTF-8 string
+    private static String readString(DataInputStream in, int record)
+            throws IOException, FsaFormatException
+    {
+        // Grow the buffer as bytes arrive rather than trusting the length
+        int length = readCount(in, record);
+        byte[] bytes = new byte[Math.min(length, INITIAL_CAPACITY)];
+        in.readFully(bytes);
+        while (bytes.length < length)
+        {
+            int read = bytes.length;
+            bytes = Arrays.copyOf(bytes, (int)Math.min(length, 2L * read));
+            in.readFully(bytes, read, bytes.length - read);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Write an unsigned varint
+    private static void writeVarint(DataOutputStream out, int value)
+            throws IOException
+    {
+        while ((value & ~0x7f) != 0)
+        {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    // Write a zigzag-encoded signed varint
+    private static void writeSigned(DataOutputStream out, int value)
+            throws IOException
+    {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    // Write a length-prefixed UTF-8 string
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+}
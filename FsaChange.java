@@ -0,0 +1,74 @@
+import java.util.Collections;
+import java.util.Set;
+
+// Description of a change to an Fsa, passed to FsaChangeListeners
+// Lists the states and transitions added and removed by the change (a
+// state or transition both added and removed within one batch appears in
+// neither), and whether anything else, such as the simulation, changed.
+public final class FsaChange
+{
+    private final Set<State> addedStates;
+    private final Set<State> removedStates;
+    private final Set<Transition> addedTransitions;
+    private final Set<Transition> removedTransitions;
+    private final boolean otherChanged;
+
+    public FsaChange(Set<State> addedStates, Set<State> removedStates,
+                     Set<Transition> addedTransitions, Set<Transition> removedTransitions,
+                     boolean otherChanged)
+    {
+        this.addedStates = Collections.unmodifiableSet(addedStates);
+        this.removedStates = Collections.unmodifiableSet(removedStates);
+        this.addedTransitions = Collections.unmodifiableSet(addedTransitions);
+        this.removedTransitions = Collections.unmodifiableSet(removedTransitions);
+        this.otherChanged = otherChanged;
+    }
+
+    //Return the states added to the FSA
+    public Set<State> getAddedStates()
+    {
+        return addedStates;
+    }
+
+    //Return the states removed from the FSA
+    public Set<State> getRemovedStates()
+    {
+        return removedStates;
+    }
+
+    //Return the transitions added to the FSA
+    public Set<Transition> getAddedTransitions()
+    {
+        return addedTransitions;
+    }
+
+    //Return the transitions removed from the FSA
+    public Set<Transition> getRemovedTransitions()
+    {
+        return removedTransitions;
+    }
+
+    //Indicate if any states were added or removed
+    public boolean statesChanged()
+    {
+        return !addedStates.isEmpty() || !removedStates.isEmpty();
+    }
+
+    //Indicate if any transitions were added or removed
+    public boolean transitionsChanged()
+    {
+        return !addedTransitions.isEmpty() || !removedTransitions.isEmpty();
+    }
+
+    //Indicate if something other than the states or transitions changed
+    public boolean otherChanged()
+    {
+        return otherChanged;
+    }
+
+    //Indicate if nothing changed
+    public boolean isEmpty()
+    {
+        return !statesChanged() && !transitionsChanged() && !otherChanged;
+    }
+}
@@ -0,0 +1,6 @@
+public interface FsaChangeListener
+{
+    //Called whenever the FSA has changed, with a description of the change
+    //A batch of changes (see Fsa.beginUpdate()) is reported as one change
+    public void fsaChanged(FsaChange change);
+}
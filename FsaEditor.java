@@ -4,8 +4,6 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 
 public class FsaEditor
 {
@@ -57,6 +55,15 @@ public class FsaEditor
         createMenuItem(editMenu, "Unset Final", ' ', micl);
         createMenuItem(editMenu, "Delete", ' ', micl);
 
+        // Initialise operations menu
+        JMenu operationsMenu = new JMenu("Operations");
+        menuBar.add(operationsMenu);
+
+        // Initialise operations menu items
+        createMenuItem(operationsMenu, "Minimise", ' ', micl);
+        createMenuItem(operationsMenu, "Remove Epsilon", ' ', micl);
+        createMenuItem(operationsMenu, "Trim", ' ', micl);
+
         // Initialise main panel
         mainPanel = new FsaPanel();
         frame.add(mainPanel, BorderLayout.CENTER);
@@ -114,7 +121,9 @@ public class FsaEditor
         // Prompt user for filename
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Open...");
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("FSA files (*.fsa)", "fsa");
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("FSA text files (*.fsa)", "fsa"));
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("FSA binary files (*.fsab)", "fsab"));
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("FSA files (*.fsa, *.fsab)", "fsa", "fsab");
         fileChooser.setFileFilter(filter);
         fileChooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
         int result = fileChooser.showOpenDialog(frame);
@@ -126,12 +135,12 @@ public class FsaEditor
         }
 
         // Read FSA from file
-        try (FileReader fr = new FileReader(fileChooser.getSelectedFile()))
+        try
         {
-            // Try to read FSA
-            FsaReaderWriter rw = new FsaReaderWriter();
+            // Try to read FSA in the format given by the file extension
+            File file = fileChooser.getSelectedFile();
             mainPanel.setFsa(new FsaImpl());
-            rw.read(fr, mainPanel.getFsa());
+            FsaStreamIo.forFile(file).read(file, mainPanel.getFsa());
         }
         catch (Exception ex)
         {
@@ -149,7 +158,9 @@ public class FsaEditor
         // Prompt user for filename
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save As...");
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("FSA files (*.fsa)", "fsa");
+        FileNameExtensionFilter binaryFilter = new FileNameExtensionFilter("FSA binary files (*.fsab)", "fsab");
+        fileChooser.addChoosableFileFilter(binaryFilter);
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("FSA text files (*.fsa)", "fsa");
         fileChooser.setFileFilter(filter);
         fileChooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
         int result = fileChooser.showSaveDialog(frame);
@@ -160,12 +171,18 @@ public class FsaEditor
             return;
         }
 
+        // Add binary extension if the binary format was chosen without one
+        File file = fileChooser.getSelectedFile();
+        if (fileChooser.getFileFilter() == binaryFilter && !binaryFilter.accept(file))
+        {
+            file = new File(file.getPath() + ".fsab");
+        }
+
         // Save FSA to file
-        try (FileWriter fw = new FileWriter(fileChooser.getSelectedFile()))
+        try
         {
-            // Try to save FSA
-            FsaReaderWriter rw = new FsaReaderWriter();
-            rw.write(fw, mainPanel.getFsa());
+            // Try to save FSA in the format given by the file extension
+            FsaStreamIo.forFile(file).write(file, mainPanel.getFsa());
         }
         catch (Exception ex)
         {
@@ -214,6 +231,24 @@ public class FsaEditor
         }
     }
 
+    // Replace the FSA by the equivalent deterministic FSA with fewest states
+    public static void minimiseFsa()
+    {
+        mainPanel.setFsa(FsaOperations.minimise(mainPanel.getFsa()));
+    }
+
+    // Replace the FSA by an equivalent FSA without epsilon transitions
+    public static void removeEpsilon()
+    {
+        mainPanel.setFsa(FsaOperations.removeEpsilon(mainPanel.getFsa()));
+    }
+
+    // Remove states that are unreachable or can not reach a final state
+    public static void trimFsa()
+    {
+        FsaReachability.trim(mainPanel.getFsa());
+    }
+
     public static FsaPanel getMainPanel()
     {
         return mainPanel;
@@ -282,6 +317,18 @@ class MenuItemClickListener implements ActionListener
             {
                 FsaEditor.newTransition();
             }
+            else if (command.equals("Minimise"))
+            {
+                FsaEditor.minimiseFsa();
+            }
+            else if (command.equals("Remove Epsilon"))
+            {
+                FsaEditor.removeEpsilon();
+            }
+            else if (command.equals("Trim"))
+            {
+                FsaEditor.trimFsa();
+            }
             else
             {
                 System.out.println(command);
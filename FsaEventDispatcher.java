@@ -0,0 +1,273 @@
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Delivers FSA, state and transition notifications on another thread
+// Register a wrapped listener, e.g. fsa.addListener(dispatcher.wrap(fl)),
+// and the FSA only queues a task when it changes; the listener itself runs
+// later on the dispatcher's executor, so a slow listener no longer slows
+// down editing or simulation. Notifications that arrive while an earlier
+// one is still queued are coalesced, so a listener is called at most once
+// per queued task however often the FSA changed in the meantime.
+// The executor must run tasks one at a time in the order they were
+// submitted, as a single thread executor or the Swing event dispatch
+// thread does. A listener may see the FSA in a later state than the one
+// that caused the notification.
+// Wrapped listeners run on the executor's thread, not on the thread that
+// changed the FSA. FsaImpl's collections are not synchronised, so such a
+// listener must not read the FSA while it may be changing, unless the
+// dispatcher is made by forSwing() and the FSA is only changed on the
+// Swing event dispatch thread.
+public class FsaEventDispatcher
+{
+    private final Executor executor;
+
+    // Executor created by this dispatcher, or null if it was supplied
+    private final ExecutorService ownExecutor;
+
+    // Create a dispatcher with its own notification thread
+    public FsaEventDispatcher()
+    {
+        ownExecutor = Executors.newSingleThreadExecutor(r ->
+        {
+            Thread thread = new Thread(r, "FSA event dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = ownExecutor;
+    }
+
+    // Create a dispatcher that runs notifications on the given executor
+    public FsaEventDispatcher(Executor executor)
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Executor must not be null!");
+        }
+        this.executor = executor;
+        ownExecutor = null;
+    }
+
+    // Create a dispatcher that runs notifications on the Swing event
+    // dispatch thread
+    public static FsaEventDispatcher forSwing()
+    {
+        return new FsaEventDispatcher(SwingUtilities::invokeLater);
+    }
+
+    // Return a listener that passes FSA changes on to fl
+    public FsaListener wrap(FsaListener fl)
+    {
+        return new QueuedFsaListener(fl);
+    }
+
+    // Return a listener that passes FSA changes, with what changed, on to fcl
+    public FsaChangeListener wrap(FsaChangeListener fcl)
+    {
+        return new QueuedFsaChangeListener(fcl);
+    }
+
+    // Return a listener that passes state changes on to sl
+    public StateListener wrap(StateListener sl)
+    {
+        return new QueuedStateListener(sl);
+    }
+
+    // Return a listener that passes transition changes on to tl
+    public TransitionListener wrap(TransitionListener tl)
+    {
+        return new QueuedTransitionListener(tl);
+    }
+
+    // Stop the notification thread of this dispatcher, if it has one
+    // Notifications already queued are still delivered
+    public void shutdown()
+    {
+        if (ownExecutor != null)
+        {
+            ownExecutor.shutdown();
+        }
+    }
+
+    // Base of the wrapping listeners
+    // Two wrappers are equal if they wrap the same listener, so a listener
+    // can be removed by removing a new wrapper for it.
+    private abstract class Queued
+    {
+        final Object listener;
+
+        // Set while a task for this listener is queued
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        Queued(Object listener)
+        {
+            if (listener == null)
+            {
+                throw new IllegalArgumentException("Listener must not be null!");
+            }
+            this.listener = listener;
+        }
+
+        // Queue a delivery unless one is already queued
+        // Throws RejectedExecutionException if the executor refuses the
+        // delivery (e.g. after shutdown()); a later change tries again
+        void schedule()
+        {
+            if (queued.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(() ->
+                    {
+                        // Clear first, so that changes made during delivery
+                        // queue another delivery
+                        queued.set(false);
+                        deliver();
+                    });
+                }
+                catch (RejectedExecutionException ex)
+                {
+                    queued.set(false);
+                    throw ex;
+                }
+            }
+        }
+
+        // Call the wrapped listener
+        abstract void deliver();
+
+        @Override
+        public int hashCode()
+        {
+            return listener.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o != null && o.getClass() == getClass() && listener.equals(((Queued)o).listener);
+        }
+    }
+
+    private class QueuedFsaListener extends Queued implements FsaListener
+    {
+        private final AtomicBoolean statesPending = new AtomicBoolean();
+        private final AtomicBoolean transitionsPending = new AtomicBoolean();
+        private final AtomicBoolean otherPending = new AtomicBoolean();
+
+        QueuedFsaListener(FsaListener fl)
+        {
+            super(fl);
+        }
+
+        public void statesChanged()
+        {
+            statesPending.set(true);
+            schedule();
+        }
+
+        public void transitionsChanged()
+        {
+            transitionsPending.set(true);
+            schedule();
+        }
+
+        public void otherChanged()
+        {
+            otherPending.set(true);
+            schedule();
+        }
+
+        void deliver()
+        {
+            FsaListener fl = (FsaListener)listener;
+            if (statesPending.getAndSet(false))
+            {
+                fl.statesChanged();
+            }
+            if (transitionsPending.getAndSet(false))
+            {
+                fl.transitionsChanged();
+            }
+            if (otherPending.getAndSet(false))
+            {
+                fl.otherChanged();
+            }
+        }
+    }
+
+    // Changes carry what was added and removed, so none are dropped; the
+    // changes queued before a delivery are passed on together, in order
+    private class QueuedFsaChangeListener extends Queued implements FsaChangeListener
+    {
+        private ArrayList<FsaChange> pending = new ArrayList<>();
+
+        QueuedFsaChangeListener(FsaChangeListener fcl)
+        {
+            super(fcl);
+        }
+
+        public void fsaChanged(FsaChange change)
+        {
+            synchronized (this)
+            {
+                pending.add(change);
+            }
+            schedule();
+        }
+
+        void deliver()
+        {
+            ArrayList<FsaChange> changes;
+            synchronized (this)
+            {
+                changes = pending;
+                pending = new ArrayList<>();
+            }
+            for (FsaChange change : changes)
+            {
+                ((FsaChangeListener)listener).fsaChanged(change);
+            }
+        }
+    }
+
+    private class QueuedStateListener extends Queued implements StateListener
+    {
+        QueuedStateListener(StateListener sl)
+        {
+            super(sl);
+        }
+
+        public void StateHasChanged()
+        {
+            schedule();
+        }
+
+        void deliver()
+        {
+            ((StateListener)listener).StateHasChanged();
+        }
+    }
+
+    private class QueuedTransitionListener extends Queued implements TransitionListener
+    {
+        QueuedTransitionListener(TransitionListener tl)
+        {
+            super(tl);
+        }
+
+        public void TransitionHasChanged()
+        {
+            schedule();
+        }
+
+        void deliver()
+        {
+            ((TransitionListener)listener).TransitionHasChanged();
+        }
+    }
+}
@@ -0,0 +1,469 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+// Generates synthetic FSAs and event traces for benchmarks and load tests
+// Usage: java FsaGenerator shape n [-seed s] [-events k] [-degree d]
+//                          [-eps e] [-traces t] [-length l] out.fsa|out.fsab
+// Writes the FSA to the output file and, if t > 0, t traces of l events to
+// the output file with its extension replaced by ".traces", one trace per
+// line, as read by FsaRunner.
+// Shapes (n states, events named a, b, ... up to k events):
+//   random   d transitions per state to random states on random events
+//   chain    state i goes to state i+1 on event i mod k; the last is final
+//   grid     a square grid; event a goes right, event b goes down
+//   dense    every state has a transition to every state on a random event
+//   epsilon  a chain linked by epsilon-transitions, with d event transitions
+//            per state
+// Every shape also gets on average e extra epsilon-transitions per state.
+// Machines are built through the Fsa interface, so they are valid FSAs;
+// the same seed always gives the same machine and traces.
+public class FsaGenerator
+{
+    // Distance between neighbouring states in the generated layout
+    private static final int SPACING = 80;
+
+    // Longest run of epsilon-transitions followed by a random walk
+    private static final int MAX_EPSILON_RUN = 100;
+
+    // Transitions in a fixed order, so that walks depend only on the seed
+    private static final Comparator<Transition> TRANSITION_ORDER = Comparator
+            .comparing((Transition t) -> t.toState().getName())
+            .thenComparing(Transition::eventName, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Random random;
+    private final String[] events;
+
+    public FsaGenerator(long seed, int eventCount)
+    {
+        if (eventCount < 1)
+        {
+            throw new IllegalArgumentException("There must be at least one event!");
+        }
+        random = new Random(seed);
+        events = new String[eventCount];
+        for (int i = 0; i < eventCount; i++)
+        {
+            events[i] = eventName(i);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        try
+        {
+            if (args.length < 3)
+            {
+                throw new IllegalArgumentException("Not enough arguments!");
+            }
+            String shape = args[0];
+            int n = Integer.parseInt(args[1]);
+            long seed = 1;
+            int eventCount = 2;
+            int degree = 2;
+            double epsilonDensity = 0;
+            int traceCount = 0;
+            int traceLength = 100;
+            for (int i = 2; i < args.length - 1; i += 2)
+            {
+                if (i + 1 >= args.length - 1)
+                {
+                    throw new IllegalArgumentException("Missing value for " + args[i] + "!");
+                }
+                String value = args[i + 1];
+                switch (args[i])
+                {
+                    case "-seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "-events":
+                        eventCount = Integer.parseInt(value);
+                        break;
+                    case "-degree":
+                        degree = Integer.parseInt(value);
+                        break;
+                    case "-eps":
+                        epsilonDensity = Double.parseDouble(value);
+                        break;
+                    case "-traces":
+                        traceCount = Integer.parseInt(value);
+                        break;
+                    case "-length":
+                        traceLength = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i] + "!");
+                }
+            }
+            File out = new File(args[args.length - 1]);
+
+            // Generate and write FSA
+            FsaGenerator generator = new FsaGenerator(seed, eventCount);
+            Fsa fsa = generator.generate(shape, n, degree, epsilonDensity);
+            FsaStreamIo.forFile(out).write(out, fsa);
+
+            // Generate and write traces
+            if (traceCount > 0)
+            {
+                String name = out.getName();
+                int dot = name.lastIndexOf('.');
+                File traceFile = new File(out.getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + ".traces");
+                try (Writer w = new BufferedWriter(new FileWriter(traceFile), 1 << 16))
+                {
+                    generator.writeTraces(w, fsa, traceCount, traceLength);
+                }
+            }
+        }
+        catch (IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.err.println("Usage: java FsaGenerator random|chain|grid|dense|epsilon n [-seed s] [-events k] "
+                    + "[-degree d] [-eps e] [-traces t] [-length l] out.fsa");
+            System.exit(2);
+        }
+        catch (IOException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        }
+    }
+
+    // Return the name of event i: a..z, then aa, ab, ...
+    public static String eventName(int i)
+    {
+        StringBuilder sb = new StringBuilder();
+        do
+        {
+            sb.append((char)('a' + i % 26));
+            i = i / 26 - 1;
+        }
+        while (i >= 0);
+        return sb.reverse().toString();
+    }
+
+    // Return the event names used by this generator
+    public String[] getEvents()
+    {
+        return events.clone();
+    }
+
+    // Generate an FSA of the named shape with n states
+    public FsaImpl generate(String shape, int n, int degree, double epsilonDensity)
+    {
+        FsaImpl fsa;
+        switch (shape)
+        {
+            case "random":
+                fsa = random(n, degree);
+                break;
+            case "chain":
+                fsa = chain(n);
+                break;
+            case "grid":
+                fsa = grid(n);
+                break;
+            case "dense":
+                fsa = dense(n);
+                break;
+            case "epsilon":
+                fsa = epsilonChain(n, degree);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape + "!");
+        }
+        addEpsilons(fsa, epsilonDensity);
+        return fsa;
+    }
+
+    // Return n states, each with degree transitions to random states on
+    // random events; state 0 is initial and about one in ten states is final
+    public FsaImpl random(int n, int degree)
+    {
+        FsaImpl fsa = new FsaImpl();
+        fsa.beginUpdate();
+        try
+        {
+            List<State> states = addStates(fsa, n);
+            for (State s : states)
+            {
+                s.setFinal(random.nextInt(10) == 0);
+                for (int i = 0; i < degree; i++)
+                {
+                    addTransition(fsa, s, states.get(random.nextInt(n)), randomEvent());
+                }
+            }
+            states.get(0).setInitial(true);
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+        return fsa;
+    }
+
+    // Return a chain of n states, state i going to state i+1 on event i mod k
+    public FsaImpl chain(int n)
+    {
+        FsaImpl fsa = new FsaImpl();
+        fsa.beginUpdate();
+        try
+        {
+            List<State> states = addStates(fsa, n);
+            for (int i = 0; i + 1 < n; i++)
+            {
+                fsa.newTransition(states.get(i), states.get(i + 1), events[i % events.length]);
+            }
+            states.get(0).setInitial(true);
+            states.get(n - 1).setFinal(true);
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+        return fsa;
+    }
+
+    // Return a square grid of (about) n states; the first event goes right,
+    // the second (or first, if there is only one) goes down, from the top
+    // left corner to the final bottom right corner
+    public FsaImpl grid(int n)
+    {
+        int side = Math.max(1, (int)Math.round(Math.sqrt(n)));
+        FsaImpl fsa = new FsaImpl();
+        fsa.beginUpdate();
+        try
+        {
+            List<State> states = addStates(fsa, side * side, side);
+            String down = events[Math.min(1, events.length - 1)];
+            for (int row = 0; row < side; row++)
+            {
+                for (int col = 0; col < side; col++)
+                {
+                    State s = states.get(row * side + col);
+                    if (col + 1 < side)
+                    {
+                        fsa.newTransition(s, states.get(row * side + col + 1), events[0]);
+                    }
+                    if (row + 1 < side)
+                    {
+                        fsa.newTransition(s, states.get((row + 1) * side + col), down);
+                    }
+                }
+            }
+            states.get(0).setInitial(true);
+            states.get(side * side - 1).setFinal(true);
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+        return fsa;
+    }
+
+    // Return n states with a transition from every state to every state
+    // on a random event; half of the states are initial and half final
+    public FsaImpl dense(int n)
+    {
+        FsaImpl fsa = new FsaImpl();
+        fsa.beginUpdate();
+        try
+        {
+            List<State> states = addStates(fsa, n);
+            for (State from : states)
+            {
+                from.setInitial(random.nextBoolean());
+                from.setFinal(random.nextBoolean());
+                for (State to : states)
+                {
+                    fsa.newTransition(from, to, randomEvent());
+                }
+            }
+            states.get(0).setInitial(true);
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+        return fsa;
+    }
+
+    // Return a chain of n states linked by epsilon-transitions, each state
+    // also having degree transitions to random states on random events
+    public FsaImpl epsilonChain(int n, int degree)
+    {
+        FsaImpl fsa = new FsaImpl();
+        fsa.beginUpdate();
+        try
+        {
+            List<State> states = addStates(fsa, n);
+            for (int i = 0; i < n; i++)
+            {
+                State s = states.get(i);
+                s.setFinal(random.nextInt(10) == 0);
+                if (i + 1 < n)
+                {
+                    fsa.newTransition(s, states.get(i + 1), null);
+                }
+                for (int j = 0; j < degree; j++)
+                {
+                    addTransition(fsa, s, states.get(random.nextInt(n)), randomEvent());
+                }
+            }
+            states.get(0).setInitial(true);
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+        return fsa;
+    }
+
+    // Add on average density epsilon-transitions per state between random states
+    public void addEpsilons(Fsa fsa, double density)
+    {
+        List<State> states = sortedByName(fsa.getStates());
+        if (states.isEmpty() || density <= 0)
+        {
+            return;
+        }
+
+        fsa.beginUpdate();
+        try
+        {
+            long count = Math.round(states.size() * density);
+            for (long i = 0; i < count; i++)
+            {
+                addTransition(fsa, states.get(random.nextInt(states.size())), states.get(random.nextInt(states.size())), null);
+            }
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+    }
+
+    // Return a random trace of the given length
+    // The trace follows a random walk through the FSA from a random initial
+    // state, taking a random transition leaving the current state each time,
+    // so that traces reach deep into the machine. Where the walk gets stuck
+    // a random event is used instead and the walk restarts from a random
+    // initial state.
+    public List<String> trace(Fsa fsa, int length)
+    {
+        List<State> initial = sortedByName(fsa.getInitialStates());
+        List<String> trace = new ArrayList<>(length);
+        State current = randomState(initial);
+        List<Transition> choices = new ArrayList<>();
+        int epsilonRun = 0;
+        while (trace.size() < length)
+        {
+            choices.clear();
+            if (current != null && epsilonRun < MAX_EPSILON_RUN)
+            {
+                choices.addAll(current.transitionsFrom());
+                choices.sort(TRANSITION_ORDER);
+            }
+            if (choices.isEmpty())
+            {
+                trace.add(randomEvent());
+                current = randomState(initial);
+                epsilonRun = 0;
+                continue;
+            }
+
+            // Epsilon-transitions are followed without adding an event
+            Transition t = choices.get(random.nextInt(choices.size()));
+            if (t.eventName() == null)
+            {
+                epsilonRun++;
+            }
+            else
+            {
+                trace.add(t.eventName());
+                epsilonRun = 0;
+            }
+            current = t.toState();
+        }
+        return trace;
+    }
+
+    // Write count random traces of the given length, one per line
+    public void writeTraces(Writer w, Fsa fsa, int count, int length)
+            throws IOException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            List<String> trace = trace(fsa, length);
+            for (int j = 0; j < trace.size(); j++)
+            {
+                if (j > 0)
+                {
+                    w.write(' ');
+                }
+                w.write(trace.get(j));
+            }
+            w.write('\n');
+        }
+    }
+
+    // Add n states named s0, s1, ... laid out in rows of 100
+    private static List<State> addStates(Fsa fsa, int n)
+    {
+        return addStates(fsa, n, 100);
+    }
+
+    // Add n states named s0, s1, ... laid out in rows of the given width
+    private static List<State> addStates(Fsa fsa, int n, int width)
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("There must be at least one state!");
+        }
+        List<State> states = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+        {
+            states.add(fsa.newState("s" + i, SPACING / 2 + SPACING * (i % width), SPACING / 2 + SPACING * (i / width)));
+        }
+        return states;
+    }
+
+    // Return the states ordered by name
+    private static List<State> sortedByName(Collection<State> states)
+    {
+        List<State> sorted = new ArrayList<>(states);
+        sorted.sort(Comparator.comparing(State::getName));
+        return sorted;
+    }
+
+    // Return a random state of the list, or null if it is empty
+    private State randomState(List<State> states)
+    {
+        return states.isEmpty() ? null : states.get(random.nextInt(states.size()));
+    }
+
+    // Add a transition unless the same one already exists
+    private static void addTransition(Fsa fsa, State from, State to, String event)
+    {
+        for (Transition t : fsa.findTransition(from, to))
+        {
+            if (event == null ? t.eventName() == null : event.equals(t.eventName()))
+            {
+                return;
+            }
+        }
+        fsa.newTransition(from, to, event);
+    }
+
+    // Return a random event name
+    private String randomEvent()
+    {
+        return events[random.nextInt(events.length)];
+    }
+}
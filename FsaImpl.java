@@ -1,20 +1,59 @@
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class FsaImpl implements Fsa, FsaSim {
     private HashSet<State> stateSet;
+    private HashMap<String, State> stateIndex;
     private HashSet<Transition> transitionSet;
-    private HashSet<FsaListener> listeners;
+    private HashMap<State, HashMap<State, HashSet<Transition>>> adjacency;
+    private HashSet<FsaChangeListener> listeners;
     private boolean isActive;
 
+    // Nesting depth of beginUpdate() calls, and changes not yet reported
+    private int updateDepth;
+    private LinkedHashSet<State> addedStates;
+    private LinkedHashSet<State> removedStates;
+    private LinkedHashSet<Transition> addedTransitions;
+    private LinkedHashSet<Transition> removedTransitions;
+    private boolean otherPending;
+
+    // Receives simulation metrics, or null if they are not wanted
+    private SimMetrics metrics;
+
+    // Transitions examined by the current step
+    private int transitionsExamined;
+
+    // Number of changes a snapshot could see, and the last snapshot taken,
+    // which freeze() returns again until the number changes
+    private long modCount;
+    private FsaSnapshot snapshot;
+    private long snapshotModCount;
+    private Runnable stateWatcher;
+
     public FsaImpl()
     {
         // Initialise variables
         stateSet = new HashSet<>();
+        stateIndex = new HashMap<>();
         transitionSet = new HashSet<>();
+        adjacency = new HashMap<>();
         listeners = new HashSet<>();
         isActive = false;
+        updateDepth = 0;
+        addedStates = new LinkedHashSet<>();
+        removedStates = new LinkedHashSet<>();
+        addedTransitions = new LinkedHashSet<>();
+        removedTransitions = new LinkedHashSet<>();
+        otherPending = false;
+        metrics = null;
+        modCount = 0;
+        snapshot = null;
+        stateWatcher = () -> modCount++;
     }
 
     //Create a new State and add it to this FSA
@@ -41,23 +80,19 @@ public class FsaImpl implements Fsa, FsaSim {
         }
 
         // Check for duplicate states
-        for (State state : stateSet)
+        if (stateIndex.containsKey(name))
         {
-            if (state.getName().equals(name))
-            {
-                throw new IllegalArgumentException("Duplicate state name!");
-            }
+            throw new IllegalArgumentException("Duplicate state name!");
         }
 
-        // Create new state and add it to state set
-        State state = new FsaState(name, new HashSet<>(), new HashSet<>(), x, y);
+        // Create new state and add it to state set and name index
+        FsaState state = new FsaState(name, new HashSet<>(), new HashSet<>(), x, y);
         stateSet.add(state);
+        stateIndex.put(name, state);
+        state.setChangeHook(stateWatcher);
 
         // Notify FSA listeners
-        for (FsaListener fl : listeners)
-        {
-            fl.statesChanged();
-        }
+        stateAdded(state);
 
         return state;
     }
@@ -66,45 +101,49 @@ public class FsaImpl implements Fsa, FsaSim {
     //If the state does not exist, returns without error
     public void removeState(State s)
     {
-        // Remove outgoing transitions
-        for (Transition t : s.transitionsFrom())
+        // Report the state and its transitions as one change
+        beginUpdate();
+        try
         {
-            // Remove from state on other side
-            t.toState().transitionsTo().remove(t);
-
-            // Remove transition from set
-            transitionSet.remove(t);
-
-            // Notify FSA listeners
-            for (FsaListener fl : listeners)
+            // Remove outgoing transitions
+            for (Transition t : s.transitionsFrom())
             {
-                fl.transitionsChanged();
+                // Remove from state on other side
+                t.toState().transitionsTo().remove(t);
+
+                // Remove transition from set and index
+                if (transitionSet.remove(t))
+                {
+                    transitionRemoved(t);
+                }
+                unindex(t);
             }
-        }
 
-        // Remove incoming transitions
-        for (Transition t : s.transitionsTo())
-        {
-            // Remove from state on other side
-            t.fromState().transitionsFrom().remove(t);
+            // Remove incoming transitions
+            for (Transition t : s.transitionsTo())
+            {
+                // Remove from state on other side
+                t.fromState().transitionsFrom().remove(t);
 
-            // Remove transition from set
-            transitionSet.remove(t);
+                // Remove transition from set and index
+                if (transitionSet.remove(t))
+                {
+                    transitionRemoved(t);
+                }
+                unindex(t);
+            }
 
-            // Notify FSA listeners
-            for (FsaListener fl : listeners)
+            // Remove state
+            if (stateSet.remove(s))
             {
-                fl.transitionsChanged();
+                ((FsaState)s).setChangeHook(null);
+                stateRemoved(s);
             }
+            stateIndex.remove(s.getName(), s);
         }
-
-        // Remove state
-        stateSet.remove(s);
-
-        // Notify FSA listeners
-        for (FsaListener fl : listeners)
+        finally
         {
-            fl.statesChanged();
+            endUpdate();
         }
     }
 
@@ -112,17 +151,8 @@ public class FsaImpl implements Fsa, FsaSim {
     //If no state exists with given name, return NULL
     public State findState(String stateName)
     {
-        // Check if state set contains state, if so, return the state
-        for (State state : stateSet)
-        {
-            if (state.getName().equals(stateName))
-            {
-                return state;
-            }
-        }
-
-        // If not, return null
-        return null;
+        // Look up state in name index
+        return stateIndex.get(stateName);
     }
 
     //Return a set containing all the states in this Fsa
@@ -168,30 +198,29 @@ public class FsaImpl implements Fsa, FsaSim {
             }
         }
 
-        // Check for duplicate transitions
-        for (Transition t : transitionSet)
+        // Check for duplicate transitions between the two states
+        HashSet<Transition> between = adjacency
+                .computeIfAbsent(fromState, s -> new HashMap<>())
+                .computeIfAbsent(toState, s -> new HashSet<>());
+        for (Transition t : between)
         {
-            if (t.fromState().equals(fromState) &&
-                    t.toState().equals(toState) &&
-                    ((t.eventName() == null && eventName == null) || t.eventName().equals(eventName)))
+            if (Objects.equals(t.eventName(), eventName))
             {
                 throw new IllegalArgumentException("Duplicate transition!");
             }
         }
 
-        // Create transition and add it to the transition set
+        // Create transition and add it to the transition set and index
         Transition t = new FsaTransition(fromState, toState, eventName);
         transitionSet.add(t);
+        between.add(t);
 
         // Add transition to start and end state
         fromState.transitionsFrom().add(t);
         toState.transitionsTo().add(t);
 
         // Notify FSA listeners
-        for (FsaListener fl : listeners)
-        {
-            fl.transitionsChanged();
-        }
+        transitionAdded(t);
 
         return t;
     }
@@ -203,12 +232,12 @@ public class FsaImpl implements Fsa, FsaSim {
         // Remove transition
         t.fromState().transitionsFrom().remove(t);
         t.toState().transitionsTo().remove(t);
-        transitionSet.remove(t);
+        unindex(t);
 
         // Notify FSA listeners
-        for (FsaListener fl : listeners)
+        if (transitionSet.remove(t))
         {
-            fl.transitionsChanged();
+            transitionRemoved(t);
         }
     }
 
@@ -223,10 +252,28 @@ public class FsaImpl implements Fsa, FsaSim {
             throw new IllegalArgumentException("FSA does not contain the specified state!");
         }
 
-        // Filter and return matching transitions
-        return transitionSet.stream()
-                .filter(t -> t.fromState().equals(fromState) && t.toState().equals(toState))
-                .collect(Collectors.toSet());
+        // Look up matching transitions in index
+        HashMap<State, HashSet<Transition>> targets = adjacency.get(fromState);
+        HashSet<Transition> between = targets == null ? null : targets.get(toState);
+        return between == null ? new HashSet<>() : new HashSet<>(between);
+    }
+
+    // Remove a transition from the index of transitions between states
+    private void unindex(Transition t)
+    {
+        HashMap<State, HashSet<Transition>> targets = adjacency.get(t.fromState());
+        if (targets != null)
+        {
+            HashSet<Transition> between = targets.get(t.toState());
+            if (between != null && between.remove(t) && between.isEmpty())
+            {
+                targets.remove(t.toState());
+                if (targets.isEmpty())
+                {
+                    adjacency.remove(t.fromState());
+                }
+            }
+        }
     }
 
     //Return the set of initial states of this Fsa
@@ -253,6 +300,61 @@ public class FsaImpl implements Fsa, FsaSim {
         return stateSet.stream().filter(s -> s.isCurrent()).collect(Collectors.toSet());
     }
 
+    //Return an immutable copy of this Fsa that can be read and simulated
+    //by any number of threads while this Fsa continues to change
+    //Must be called from the thread that modifies this Fsa
+    //Copies every state and transition, in O(n + m) time, unless nothing
+    //has changed since the last call, which returns the same snapshot.
+    //Simulation steps only change current flags, which the snapshot does
+    //not copy, so they do not count as changes.
+    public FsaSnapshot freeze()
+    {
+        // Reuse the last snapshot if nothing has changed since
+        if (snapshot != null && snapshotModCount == modCount)
+        {
+            return snapshot;
+        }
+
+        // Number states
+        int n = stateSet.size();
+        State[] states = stateSet.toArray(new State[n]);
+        HashMap<State, Integer> index = new HashMap<>();
+        String[] names = new String[n];
+        int[] xPos = new int[n];
+        int[] yPos = new int[n];
+        boolean[] initial = new boolean[n];
+        boolean[] final_ = new boolean[n];
+        for (int i = 0; i < n; i++)
+        {
+            index.put(states[i], i);
+            names[i] = states[i].getName();
+            xPos[i] = states[i].getXpos();
+            yPos[i] = states[i].getYpos();
+            initial[i] = states[i].isInitial();
+            final_[i] = states[i].isFinal();
+        }
+
+        // Copy transitions, grouped by from-state
+        int[] transitionStart = new int[n + 1];
+        int[] transitionTo = new int[transitionSet.size()];
+        String[] transitionEvent = new String[transitionSet.size()];
+        int t = 0;
+        for (int i = 0; i < n; i++)
+        {
+            transitionStart[i] = t;
+            for (Transition transition : states[i].transitionsFrom())
+            {
+                transitionTo[t] = index.get(transition.toState());
+                transitionEvent[t++] = transition.eventName();
+            }
+        }
+        transitionStart[n] = t;
+
+        snapshot = new FsaSnapshot(names, xPos, yPos, initial, final_, transitionStart, transitionTo, transitionEvent);
+        snapshotModCount = modCount;
+        return snapshot;
+    }
+
     //Return a string describing this Fsa
     //Returns a string that contains (in this order):
     //for each state in the FSA, a line (terminated by \n) containing
@@ -288,18 +390,160 @@ public class FsaImpl implements Fsa, FsaSim {
     //Add a listener to this FSA
     public void addListener(FsaListener fl)
     {
-        listeners.add(fl);
+        listeners.add(new FsaListenerAdapter(fl));
     }
 
     //Remove a listener from this FSA
     public void removeListener(FsaListener fl)
     {
-        listeners.remove(fl);
+        listeners.remove(new FsaListenerAdapter(fl));
+    }
+
+    //Add a listener that is told what has changed to this FSA
+    public void addChangeListener(FsaChangeListener fcl)
+    {
+        listeners.add(fcl);
+    }
+
+    //Remove a change listener from this FSA
+    public void removeChangeListener(FsaChangeListener fcl)
+    {
+        listeners.remove(fcl);
+    }
+
+    //Start a batch of changes to this FSA
+    //Listeners are not notified until the matching endUpdate() call,
+    //and are then notified at most once of each kind of change.
+    //Batches may be nested.
+    public void beginUpdate()
+    {
+        updateDepth++;
+    }
+
+    //End a batch of changes to this FSA started by beginUpdate()
+    //Throws IllegalStateException if there is no batch to end
+    public void endUpdate()
+    {
+        if (updateDepth == 0)
+        {
+            throw new IllegalStateException("No update in progress!");
+        }
+        if (--updateDepth > 0)
+        {
+            return;
+        }
+
+        // Notify FSA listeners of the changes made during the batch
+        fireChanges();
+    }
+
+    // Note that a state was added
+    private void stateAdded(State s)
+    {
+        modCount++;
+        if (!listeners.isEmpty())
+        {
+            addedStates.add(s);
+            fireChanges();
+        }
+    }
+
+    // Note that a state was removed
+    private void stateRemoved(State s)
+    {
+        modCount++;
+        if (!listeners.isEmpty())
+        {
+            // A state added and removed in one batch is not reported
+            if (!addedStates.remove(s))
+            {
+                removedStates.add(s);
+            }
+            fireChanges();
+        }
+    }
+
+    // Note that a transition was added
+    private void transitionAdded(Transition t)
+    {
+        modCount++;
+        if (!listeners.isEmpty())
+        {
+            addedTransitions.add(t);
+            fireChanges();
+        }
+    }
+
+    // Note that a transition was removed
+    private void transitionRemoved(Transition t)
+    {
+        modCount++;
+        if (!listeners.isEmpty())
+        {
+            // A transition added and removed in one batch is not reported
+            if (!addedTransitions.remove(t))
+            {
+                removedTransitions.add(t);
+            }
+            fireChanges();
+        }
+    }
+
+    // Note that something other than the states or transitions changed
+    private void fireOtherChanged()
+    {
+        if (!listeners.isEmpty())
+        {
+            otherPending = true;
+            fireChanges();
+        }
+    }
+
+    // Notify FSA listeners of the changes noted so far, unless a batch is
+    // in progress
+    private void fireChanges()
+    {
+        if (updateDepth > 0)
+        {
+            return;
+        }
+
+        FsaChange change = new FsaChange(addedStates, removedStates, addedTransitions, removedTransitions, otherPending);
+        addedStates = new LinkedHashSet<>();
+        removedStates = new LinkedHashSet<>();
+        addedTransitions = new LinkedHashSet<>();
+        removedTransitions = new LinkedHashSet<>();
+        otherPending = false;
+        if (change.isEmpty())
+        {
+            return;
+        }
+
+        // Listeners may add or remove listeners
+        for (FsaChangeListener fcl : new ArrayList<>(listeners))
+        {
+            fcl.fsaChanged(change);
+        }
+    }
+
+    //Set the receiver of simulation metrics, or null to stop collecting them
+    //While no receiver is set, the simulation does no extra work
+    public void setMetrics(SimMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    //Return the receiver of simulation metrics, or null if there is none
+    public SimMetrics getMetrics()
+    {
+        return metrics;
     }
 
     //Reset the simulation to its initial state(s)
     public void reset()
     {
+        SimMetrics m = metrics;
+
         // Activate FSA
         isActive = true;
 
@@ -312,18 +556,24 @@ public class FsaImpl implements Fsa, FsaSim {
             }
         }
 
-        // Notify FSA listeners
-        for (FsaListener fl : listeners)
+        if (m != null)
         {
-            fl.otherChanged();
+            m.simulationReset();
         }
+
+        // Notify FSA listeners
+        fireOtherChanged();
     }
 
     //Take one step in the simulation
     public void step(String event)
     {
+        SimMetrics m = metrics;
+        long start = m == null ? 0 : System.nanoTime();
+        transitionsExamined = 0;
+
         // Follow epsilon transitions
-        followEpsilon();
+        int epsilonIterations = followEpsilon();
 
         // Follow regular event transitions
         if (event != null)
@@ -337,6 +587,10 @@ public class FsaImpl implements Fsa, FsaSim {
             // For each state that was a current state
             for (State s : states)
             {
+                if (m != null)
+                {
+                    transitionsExamined += s.transitionsFrom().size();
+                }
                 // For each transition from the state
                 for (Transition t : s.transitionsFrom())
                 {
@@ -351,25 +605,36 @@ public class FsaImpl implements Fsa, FsaSim {
             }
         }
 
-        // Notify FSA listeners
-        for (FsaListener fl : listeners)
+        if (m != null)
         {
-            fl.otherChanged();
+            // Stop the clock before counting the current states
+            long nanos = System.nanoTime() - start;
+            m.stepTaken(event, getCurrentStates().size(), epsilonIterations, transitionsExamined, nanos);
         }
+
+        // Notify FSA listeners
+        fireOtherChanged();
     }
 
-    // Follow epsilon transitions
-    private void followEpsilon()
+    // Follow epsilon transitions, returning the number of rounds needed
+    private int followEpsilon()
     {
         // Get list of current states
         Set<State> currentStates = getCurrentStates();
+        SimMetrics m = metrics;
+        int iterations = 0;
         while (!currentStates.isEmpty())
         {
             Set<State> newStates = new HashSet<>();
+            iterations++;
 
             // For each current state
             for (State s : currentStates)
             {
+                if (m != null)
+                {
+                    transitionsExamined += s.transitionsFrom().size();
+                }
                 // For each transition of current state
                 for (Transition t : s.transitionsFrom())
                 {
@@ -390,6 +655,7 @@ public class FsaImpl implements Fsa, FsaSim {
             // Repeat with newly added states
             currentStates = newStates;
         }
+        return iterations;
     }
 
     //Returns true if the simulation has recognised
@@ -1,11 +1,17 @@
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.IOException;
 import java.io.Writer;
 
-public interface FsaIo
+public interface FsaIo extends FsaStreamIo
 {
     //This class handles reading and writing FSA representations as
     //described in the practical specification
+    //Only text formats implement FsaIo; code that may meet any format
+    //should use FsaStreamIo.forFile, as the editor does
 
     //Read the description of a finite-state automaton from the
     //Reader , r, and transfer it to Fsa, f.
@@ -18,4 +24,25 @@ public interface FsaIo
     //Write a representation of the Fsa, f, to the Writer, w.
     public void write(Writer w, Fsa f)
       throws IOException;
+
+
+    //Read the description of a finite-state automaton from the
+    //InputStream, in, and transfer it to Fsa, f.
+    //The stream is decoded using the default charset
+    public default void read(InputStream in, Fsa f)
+      throws IOException, FsaFormatException
+    {
+        read(new InputStreamReader(in), f);
+    }
+
+
+    //Write a representation of the Fsa, f, to the OutputStream, out.
+    //The stream is encoded using the default charset
+    public default void write(OutputStream out, Fsa f)
+      throws IOException
+    {
+        OutputStreamWriter w = new OutputStreamWriter(out);
+        write(w, f);
+        w.flush();
+    }
 }
@@ -0,0 +1,311 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Decision procedures on the sequences of events (the language) that FSAs
+// recognise
+// Emptiness is decided on the FSA itself. Equivalence and inclusion work
+// on the determinised FSAs, visiting only pairs of DFA states reachable
+// from the start; the DFAs are built on the fly as the pairs are visited,
+// so a search that stops early builds little of them. Where two languages
+// differ, the find methods return a shortest trace that shows it.
+public class FsaLanguage
+{
+    private FsaLanguage()
+    {
+
+    }
+
+    // Return true if the FSA recognises no sequence of events at all
+    public static boolean isEmpty(Fsa fsa)
+    {
+        return findAccepted(fsa) == null;
+    }
+
+    // Return a shortest sequence of events that the FSA recognises, or null
+    // if it recognises none
+    public static List<String> findAccepted(Fsa fsa)
+    {
+        FsaTables tables = fsa.freeze().tables();
+        int n = tables.stateCount();
+
+        // Breadth-first search in which epsilon transitions cost nothing:
+        // states reached by them go to the front of the queue
+        int[] distance = new int[n];
+        int[] parent = new int[n];
+        int[] symbol = new int[n];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        long[] initial = tables.initialSet();
+        for (int s = 0; s < n; s++)
+        {
+            if (StateSet.contains(initial, s))
+            {
+                distance[s] = 0;
+                parent[s] = -1;
+                queue.add(s);
+            }
+        }
+
+        long[] finals = tables.finalSet();
+        boolean[] done = new boolean[n];
+        while (!queue.isEmpty())
+        {
+            int s = queue.poll();
+            if (done[s])
+            {
+                continue;
+            }
+            done[s] = true;
+
+            // States leave the queue in order of distance
+            if (StateSet.contains(finals, s))
+            {
+                ArrayList<String> trace = new ArrayList<>();
+                for (int t = s; parent[t] >= 0; t = parent[t])
+                {
+                    if (symbol[t] >= 0)
+                    {
+                        trace.add(tables.symbolName(symbol[t]));
+                    }
+                }
+                Collections.reverse(trace);
+                return trace;
+            }
+
+            for (int p = tables.epsStart(s); p < tables.epsStart(s + 1); p++)
+            {
+                int dest = tables.epsTarget(p);
+                if (distance[s] < distance[dest])
+                {
+                    distance[dest] = distance[s];
+                    parent[dest] = s;
+                    symbol[dest] = -1;
+                    queue.addFirst(dest);
+                }
+            }
+            for (int e = tables.edgeStart(s); e < tables.edgeStart(s + 1); e++)
+            {
+                int dest = tables.edgeTarget(e);
+                if (distance[s] + 1 < distance[dest])
+                {
+                    distance[dest] = distance[s] + 1;
+                    parent[dest] = s;
+                    symbol[dest] = tables.edgeSymbol(e);
+                    queue.addLast(dest);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Return true if the two FSAs recognise exactly the same sequences of
+    // events
+    // Uses the algorithm of Hopcroft and Karp: pairs of DFA states that must
+    // be equivalent are merged with union-find, so each merge is checked
+    // only once, in almost linear time
+    public static boolean isEquivalent(Fsa a, Fsa b)
+    {
+        Pair pair = new Pair(a, b);
+        UnionFind sets = new UnionFind();
+        ArrayDeque<int[]> work = new ArrayDeque<>();
+        int l = pair.leftStart;
+        int r = pair.rightStart;
+        sets.union(node(l, 0), node(r, 1));
+        work.push(new int[] {l, r});
+        while (!work.isEmpty())
+        {
+            int[] states = work.pop();
+            if (pair.left.isAccepting(states[0]) != pair.right.isAccepting(states[1]))
+            {
+                return false;
+            }
+            for (int i = 0; i < pair.symbols.length; i++)
+            {
+                int nl = pair.leftNext(states[0], i);
+                int nr = pair.rightNext(states[1], i);
+                if (sets.union(node(nl, 0), node(nr, 1)))
+                {
+                    work.push(new int[] {nl, nr});
+                }
+            }
+        }
+        return true;
+    }
+
+    // Return a shortest sequence of events recognised by one FSA but not by
+    // the other, or null if they recognise the same sequences
+    public static List<String> findDifference(Fsa a, Fsa b)
+    {
+        return new Pair(a, b).search(false);
+    }
+
+    // Return true if every sequence of events recognised by FSA a is also
+    // recognised by FSA b
+    public static boolean isIncluded(Fsa a, Fsa b)
+    {
+        return findNotIncluded(a, b) == null;
+    }
+
+    // Return a shortest sequence of events recognised by FSA a but not by
+    // FSA b, or null if there is none
+    public static List<String> findNotIncluded(Fsa a, Fsa b)
+    {
+        return new Pair(a, b).search(true);
+    }
+
+    // Return the union-find node of a DFA state of the left (side 0) or
+    // right (side 1) FSA, where DEAD is node 0 or 1
+    private static int node(int d, int side)
+    {
+        return 2 * (d + 1) + side;
+    }
+
+    // Disjoint sets of union-find nodes, which are added as they are used
+    private static class UnionFind
+    {
+        private int[] parent = new int[0];
+
+        // Merge the sets of nodes x and y, returning false if they were
+        // already the same set
+        boolean union(int x, int y)
+        {
+            x = find(x);
+            y = find(y);
+            if (x == y)
+            {
+                return false;
+            }
+            parent[x] = y;
+            return true;
+        }
+
+        // Return the representative of the set of node x, halving paths on
+        // the way
+        int find(int x)
+        {
+            if (x >= parent.length)
+            {
+                // Add nodes, each in a set of its own
+                int old = parent.length;
+                parent = Arrays.copyOf(parent, Math.max(2 * old, x + 16));
+                for (int i = old; i < parent.length; i++)
+                {
+                    parent[i] = i;
+                }
+            }
+            while (parent[x] != x)
+            {
+                parent[x] = parent[parent[x]];
+                x = parent[x];
+            }
+            return x;
+        }
+    }
+
+    // Two lazily determinised FSAs over their merged alphabet
+    // The DFAs are never cleared, so their state numbers stay valid
+    private static class Pair
+    {
+        final SubsetDfa left;
+        final SubsetDfa right;
+        final int leftStart;
+        final int rightStart;
+        final String[] symbols;
+        final int[] leftSymbol;
+        final int[] rightSymbol;
+
+        Pair(Fsa a, Fsa b)
+        {
+            left = new SubsetDfa(a.freeze().tables(), Integer.MAX_VALUE);
+            right = new SubsetDfa(b.freeze().tables(), Integer.MAX_VALUE);
+            leftStart = left.start();
+            rightStart = right.start();
+            LinkedHashSet<String> events = new LinkedHashSet<>();
+            FsaOperations.addSymbols(left.tables(), events);
+            FsaOperations.addSymbols(right.tables(), events);
+            symbols = events.toArray(new String[0]);
+            leftSymbol = FsaOperations.symbolMap(left.tables(), symbols);
+            rightSymbol = FsaOperations.symbolMap(right.tables(), symbols);
+        }
+
+        int leftNext(int d, int i)
+        {
+            return leftSymbol[i] < 0 ? SubsetDfa.DEAD : left.next(d, leftSymbol[i]);
+        }
+
+        int rightNext(int d, int i)
+        {
+            return rightSymbol[i] < 0 ? SubsetDfa.DEAD : right.next(d, rightSymbol[i]);
+        }
+
+        // Return a shortest trace leading to a pair of DFA states where the
+        // left accepts and the right does not (or, unless leftOnly, the
+        // other way round), or null if there is none
+        List<String> search(boolean leftOnly)
+        {
+            // Breadth-first search over reachable pairs, indexed by hash
+            HashMap<Long, Integer> index = new HashMap<>();
+            int[] pairs = new int[16];
+            int[] parent = new int[8];
+            int[] symbol = new int[8];
+            int count = 0;
+            int l = leftStart;
+            int r = rightStart;
+            index.put(FsaOperations.pair(l, r), count);
+            pairs[0] = l;
+            pairs[1] = r;
+            parent[0] = -1;
+            count++;
+            for (int p = 0; p < count; p++)
+            {
+                l = pairs[2 * p];
+                r = pairs[2 * p + 1];
+                boolean la = left.isAccepting(l);
+                boolean ra = right.isAccepting(r);
+                if (la && !ra || !leftOnly && ra && !la)
+                {
+                    // Follow parents back to the start
+                    ArrayList<String> trace = new ArrayList<>();
+                    for (int q = p; parent[q] >= 0; q = parent[q])
+                    {
+                        trace.add(symbols[symbol[q]]);
+                    }
+                    Collections.reverse(trace);
+                    return trace;
+                }
+
+                // Pairs where neither side (or, for inclusion, the left) can
+                // accept any more lead to no difference
+                if (l == SubsetDfa.DEAD && (leftOnly || r == SubsetDfa.DEAD))
+                {
+                    continue;
+                }
+                for (int i = 0; i < symbols.length; i++)
+                {
+                    int nl = leftNext(l, i);
+                    int nr = rightNext(r, i);
+                    if (index.putIfAbsent(FsaOperations.pair(nl, nr), count) == null)
+                    {
+                        if (count == parent.length)
+                        {
+                            pairs = Arrays.copyOf(pairs, 4 * count);
+                            parent = Arrays.copyOf(parent, 2 * count);
+                            symbol = Arrays.copyOf(symbol, 2 * count);
+                        }
+                        pairs[2 * count] = nl;
+                        pairs[2 * count + 1] = nr;
+                        parent[count] = p;
+                        symbol[count] = i;
+                        count++;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// Passes changes to an FsaListener, which is not told what changed
+// Two adapters are equal if they wrap the same FsaListener, so an
+// FsaListener can be removed by removing a new adapter for it.
+public class FsaListenerAdapter implements FsaChangeListener
+{
+    private final FsaListener listener;
+
+    public FsaListenerAdapter(FsaListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public void fsaChanged(FsaChange change)
+    {
+        if (change.statesChanged())
+        {
+            listener.statesChanged();
+        }
+        if (change.transitionsChanged())
+        {
+            listener.transitionsChanged();
+        }
+        if (change.otherChanged())
+        {
+            listener.otherChanged();
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return listener.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof FsaListenerAdapter && listener.equals(((FsaListenerAdapter)o).listener);
+    }
+}
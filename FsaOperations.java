@@ -0,0 +1,633 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Operations that build a new FSA from existing ones
+// The FSAs given are not changed. The results are new FsaImpls; where
+// their states are new, they are laid out in columns by their distance
+// from an initial state.
+public class FsaOperations
+{
+    // Layout of the states of results
+    private static final int MARGIN = 60;
+    private static final int COLUMN_WIDTH = 120;
+    private static final int ROW_HEIGHT = 80;
+
+    private FsaOperations()
+    {
+
+    }
+
+    // Return a deterministic FSA with the fewest states that recognises the
+    // same sequences of events as the given FSA
+    // The FSA is determinised by subset construction, then equivalent states
+    // are merged by Hopcroft's partition refinement, in O(k n log n) time for
+    // n DFA states and k event names. States from which no final state can be
+    // reached are left out, so the result may have missing transitions
+    // (which lead nowhere) and has one state, q0, if nothing is recognised.
+    public static FsaImpl minimise(Fsa fsa)
+    {
+        CompiledFsa dfa = fsa.freeze().compile();
+        int k = dfa.symbolCount();
+        int dead = dfa.stateCount();
+        int n = dead + 1;
+
+        // Complete the DFA with an explicit dead state
+        int[] next = new int[n * k];
+        for (int d = 0; d < dead; d++)
+        {
+            for (int a = 0; a < k; a++)
+            {
+                int e = dfa.next(d, a);
+                next[d * k + a] = e == CompiledFsa.DEAD ? dead : e;
+            }
+        }
+        Arrays.fill(next, dead * k, n * k, dead);
+        boolean[] accepting = new boolean[n];
+        for (int d = 0; d < dead; d++)
+        {
+            accepting[d] = dfa.isAccepting(d);
+        }
+        int start = dfa.startState() == CompiledFsa.DEAD ? dead : dfa.startState();
+
+        // Merge equivalent states
+        int[] blockOf = partition(n, k, next, accepting);
+
+        // Number the blocks, giving one DFA state of each as its representative
+        int blocks = 0;
+        for (int b : blockOf)
+        {
+            blocks = Math.max(blocks, b + 1);
+        }
+        int[] representative = new int[blocks];
+        for (int d = n - 1; d >= 0; d--)
+        {
+            representative[blockOf[d]] = d;
+        }
+
+        // Build the minimal DFA over the blocks, leaving out the dead block
+        // unless nothing is recognised
+        int deadBlock = blockOf[dead];
+        int[] minNext = new int[blocks * k];
+        boolean[] minAccepting = new boolean[blocks];
+        for (int b = 0; b < blocks; b++)
+        {
+            int d = representative[b];
+            minAccepting[b] = accepting[d];
+            for (int a = 0; a < k; a++)
+            {
+                int target = blockOf[next[d * k + a]];
+                minNext[b * k + a] = target == deadBlock ? -1 : target;
+            }
+        }
+        String[] symbols = new String[k];
+        for (int a = 0; a < k; a++)
+        {
+            symbols[a] = dfa.symbolName(a);
+        }
+        return build(blocks, blockOf[start], k, minNext, minAccepting, symbols);
+    }
+
+    // Return an FSA without epsilon-transitions that recognises the same
+    // sequences of events as the given FSA
+    // Each state keeps its name, position and initial flag. It gets a
+    // transition on event a to every state that the original reaches on a
+    // from any state in its epsilon-closure, and is final if its closure
+    // contains a final state, so the closures never need to be computed
+    // when the result is simulated.
+    public static FsaImpl removeEpsilon(Fsa fsa)
+    {
+        FsaSnapshot snapshot = fsa.freeze();
+        FsaTables tables = snapshot.tables();
+        int n = snapshot.stateCount();
+
+        FsaImpl result = new FsaImpl();
+        result.beginUpdate();
+        try
+        {
+            State[] states = new State[n];
+            for (int s = 0; s < n; s++)
+            {
+                states[s] = result.newState(snapshot.stateName(s), snapshot.getXpos(s), snapshot.getYpos(s));
+                states[s].setInitial(snapshot.isInitial(s));
+            }
+
+            // Visit the epsilon-closure of each state; seen[q] == s + 1 marks
+            // the states already in the closure of s
+            int[] seen = new int[n];
+            int[] closure = new int[n];
+            HashSet<Long> added = new HashSet<>();
+            for (int s = 0; s < n; s++)
+            {
+                int size = 0;
+                closure[size++] = s;
+                seen[s] = s + 1;
+                boolean isFinal = false;
+                added.clear();
+                for (int i = 0; i < size; i++)
+                {
+                    int q = closure[i];
+                    isFinal |= snapshot.isFinal(q);
+                    for (int p = tables.epsStart(q); p < tables.epsStart(q + 1); p++)
+                    {
+                        int dest = tables.epsTarget(p);
+                        if (seen[dest] != s + 1)
+                        {
+                            seen[dest] = s + 1;
+                            closure[size++] = dest;
+                        }
+                    }
+
+                    // Move the event transitions of the closure to s
+                    for (int e = tables.edgeStart(q); e < tables.edgeStart(q + 1); e++)
+                    {
+                        int symbol = tables.edgeSymbol(e);
+                        int dest = tables.edgeTarget(e);
+                        if (added.add((long)symbol * n + dest))
+                        {
+                            result.newTransition(states[s], states[dest], tables.symbolName(symbol));
+                        }
+                    }
+                }
+                states[s].setFinal(isFinal);
+            }
+        }
+        finally
+        {
+            result.endUpdate();
+        }
+        return result;
+    }
+
+    // Return a deterministic FSA that recognises the sequences of events
+    // recognised by both FSAs
+    public static FsaImpl intersection(Fsa a, Fsa b)
+    {
+        return product(a, b, Combination.INTERSECTION, null);
+    }
+
+    // Return a deterministic FSA that recognises the sequences of events
+    // recognised by either FSA
+    public static FsaImpl union(Fsa a, Fsa b)
+    {
+        return product(a, b, Combination.UNION, null);
+    }
+
+    // Return a deterministic FSA that recognises the sequences of events
+    // recognised by FSA a but not by FSA b
+    public static FsaImpl difference(Fsa a, Fsa b)
+    {
+        return product(a, b, Combination.DIFFERENCE, null);
+    }
+
+    // Return a deterministic FSA that recognises every sequence of events
+    // from the alphabet that the FSA does not recognise
+    // Events of the FSA that are not in the alphabet are ignored
+    // Throws IllegalArgumentException if an event name is not valid
+    public static FsaImpl complement(Fsa fsa, Collection<String> alphabet)
+    {
+        // Immutable collections throw NullPointerException from contains(null)
+        for (String event : alphabet)
+        {
+            if (event == null)
+            {
+                throw new IllegalArgumentException("Event name can not be empty!");
+            }
+        }
+        return product(fsa, null, Combination.COMPLEMENT, alphabet);
+    }
+
+    // Ways of combining the sequences recognised by two FSAs
+    private enum Combination
+    {
+        INTERSECTION, UNION, DIFFERENCE, COMPLEMENT;
+
+        // Indicate if a product state recognises the events that led to it
+        boolean accepts(boolean left, boolean right)
+        {
+            switch (this)
+            {
+                case INTERSECTION:
+                    return left && right;
+                case UNION:
+                    return left || right;
+                case DIFFERENCE:
+                    return left && !right;
+                default:
+                    return !left;
+            }
+        }
+
+        // Indicate if nothing can be recognised after reaching a product
+        // state, given which sides have reached their dead state
+        boolean isDead(boolean leftDead, boolean rightDead)
+        {
+            switch (this)
+            {
+                case INTERSECTION:
+                    return leftDead || rightDead;
+                case UNION:
+                    return leftDead && rightDead;
+                case DIFFERENCE:
+                    return leftDead;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    // Return the product of the determinised FSAs, combining their final
+    // states as given, over the alphabet (or the event names of both FSAs)
+    // Product states are built from the start, each a pair of DFA states
+    // (DEAD if a side has no current state) found through a hash index from
+    // pairs to state numbers while working through the new states. Pairs
+    // that the combination makes dead are skipped as they are found, and
+    // other states from which no final state can be reached are then
+    // removed, so that only the start state may be useless.
+    private static FsaImpl product(Fsa a, Fsa b, Combination combination, Collection<String> alphabet)
+    {
+        CompiledFsa left = a.freeze().compile();
+        CompiledFsa right = b == null ? null : b.freeze().compile();
+
+        // Merge the alphabets
+        LinkedHashSet<String> events = new LinkedHashSet<>();
+        if (alphabet != null)
+        {
+            events.addAll(alphabet);
+        }
+        else
+        {
+            addSymbols(left.tables(), events);
+            addSymbols(right == null ? null : right.tables(), events);
+        }
+        String[] symbols = events.toArray(new String[0]);
+        int k = symbols.length;
+        int[] leftSymbol = symbolMap(left.tables(), symbols);
+        int[] rightSymbol = symbolMap(right == null ? null : right.tables(), symbols);
+
+        // Work through the reachable product states, starting with the start
+        HashMap<Long, Integer> index = new HashMap<>();
+        int[] pairs = new int[16];
+        int[] next = new int[8 * Math.max(k, 1)];
+        int count = 0;
+        int leftStart = left.startState();
+        int rightStart = right == null ? CompiledFsa.DEAD : right.startState();
+        index.put(pair(leftStart, rightStart), count);
+        pairs[0] = leftStart;
+        pairs[1] = rightStart;
+        count++;
+        for (int p = 0; p < count; p++)
+        {
+            int l = pairs[2 * p];
+            int r = pairs[2 * p + 1];
+            if ((p + 1) * k > next.length)
+            {
+                next = Arrays.copyOf(next, 2 * Math.max(next.length, (p + 1) * k));
+            }
+            for (int i = 0; i < k; i++)
+            {
+                int nl = l == CompiledFsa.DEAD || leftSymbol[i] < 0 ? CompiledFsa.DEAD : left.next(l, leftSymbol[i]);
+                int nr = r == CompiledFsa.DEAD || rightSymbol[i] < 0 ? CompiledFsa.DEAD : right.next(r, rightSymbol[i]);
+                if (combination.isDead(nl == CompiledFsa.DEAD, nr == CompiledFsa.DEAD))
+                {
+                    next[p * k + i] = -1;
+                    continue;
+                }
+
+                // Number the product state if it is new
+                Integer target = index.putIfAbsent(pair(nl, nr), count);
+                if (target == null)
+                {
+                    target = count++;
+                    if (2 * count > pairs.length)
+                    {
+                        pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+                    }
+                    pairs[2 * target] = nl;
+                    pairs[2 * target + 1] = nr;
+                }
+                next[p * k + i] = target;
+            }
+        }
+
+        // Mark final product states
+        boolean[] accepting = new boolean[count];
+        for (int p = 0; p < count; p++)
+        {
+            int l = pairs[2 * p];
+            int r = pairs[2 * p + 1];
+            accepting[p] = combination.accepts(l != CompiledFsa.DEAD && left.isAccepting(l),
+                    r != CompiledFsa.DEAD && right.isAccepting(r));
+        }
+        removeUseless(count, k, next, accepting);
+        return build(count, 0, k, next, accepting, symbols);
+    }
+
+    // Remove the transitions of a DFA into states from which no accepting
+    // state can be reached, so that build() leaves those states out
+    // next[d * k + a] is the successor of state d on event a, or -1
+    private static void removeUseless(int n, int k, int[] next, boolean[] accepting)
+    {
+        // Predecessors of each state, with those of state d at
+        // predecessors[predecessorStart[d]..predecessorStart[d+1]-1]
+        int[] predecessorStart = new int[n + 1];
+        for (int i = 0; i < n * k; i++)
+        {
+            if (next[i] >= 0)
+            {
+                predecessorStart[next[i] + 1]++;
+            }
+        }
+        for (int d = 0; d < n; d++)
+        {
+            predecessorStart[d + 1] += predecessorStart[d];
+        }
+        int[] fill = Arrays.copyOf(predecessorStart, n);
+        int[] predecessors = new int[predecessorStart[n]];
+        for (int i = 0; i < n * k; i++)
+        {
+            if (next[i] >= 0)
+            {
+                predecessors[fill[next[i]]++] = i / k;
+            }
+        }
+
+        // Search backwards from the accepting states
+        boolean[] live = new boolean[n];
+        int[] queue = new int[n];
+        int count = 0;
+        for (int d = 0; d < n; d++)
+        {
+            if (accepting[d])
+            {
+                live[d] = true;
+                queue[count++] = d;
+            }
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int d = queue[i];
+            for (int j = predecessorStart[d]; j < predecessorStart[d + 1]; j++)
+            {
+                int e = predecessors[j];
+                if (!live[e])
+                {
+                    live[e] = true;
+                    queue[count++] = e;
+                }
+            }
+        }
+
+        for (int i = 0; i < n * k; i++)
+        {
+            if (next[i] >= 0 && !live[next[i]])
+            {
+                next[i] = -1;
+            }
+        }
+    }
+
+    // Return the hash key of a pair of DFA states
+    // Also used by FsaLanguage
+    static long pair(int left, int right)
+    {
+        return ((long)left << 32) | (right & 0xffffffffL);
+    }
+
+    // Add the event names of the tables (if any) to the set
+    // Also used by FsaLanguage
+    static void addSymbols(FsaTables tables, Set<String> events)
+    {
+        for (int a = 0; tables != null && a < tables.symbolCount(); a++)
+        {
+            events.add(tables.symbolName(a));
+        }
+    }
+
+    // Return the symbol number in the tables of each event name, or -1 if
+    // no transition uses that event (or there are no tables)
+    // Also used by FsaLanguage
+    static int[] symbolMap(FsaTables tables, String[] symbols)
+    {
+        int[] map = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++)
+        {
+            map[i] = tables == null ? -1 : tables.symbolOf(symbols[i]);
+        }
+        return map;
+    }
+
+    // Return the block of each state of a complete DFA after Hopcroft's
+    // partition refinement: two states are in the same block if and only if
+    // the same sequences of events lead from them to an accepting state
+    // next[d * k + a] is the successor of state d on event a
+    private static int[] partition(int n, int k, int[] next, boolean[] accepting)
+    {
+        // Predecessors of each state on each event, with those of state d on
+        // event a at predecessors[predecessorStart[a * (n + 1) + d]..]
+        int[] predecessorStart = new int[k * (n + 1) + 1];
+        for (int d = 0; d < n; d++)
+        {
+            for (int a = 0; a < k; a++)
+            {
+                predecessorStart[a * (n + 1) + next[d * k + a] + 1]++;
+            }
+        }
+        for (int i = 1; i < predecessorStart.length; i++)
+        {
+            predecessorStart[i] += predecessorStart[i - 1];
+        }
+        int[] fill = Arrays.copyOf(predecessorStart, predecessorStart.length);
+        int[] predecessors = new int[n * k];
+        for (int d = 0; d < n; d++)
+        {
+            for (int a = 0; a < k; a++)
+            {
+                predecessors[fill[a * (n + 1) + next[d * k + a]]++] = d;
+            }
+        }
+
+        // States are kept in elements, with the states of block b at
+        // elements[first[b]..end[b]-1]; location[d] is the index of state d
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] marked = new int[n];
+        boolean[] waiting = new boolean[n];
+        int[] worklist = new int[n];
+        int worklistSize = 0;
+        int[] touched = new int[n];
+
+        // Start with the accepting and the other states
+        int acceptingCount = 0;
+        for (int d = 0; d < n; d++)
+        {
+            if (accepting[d])
+            {
+                acceptingCount++;
+            }
+        }
+        int blocks = 0;
+        int[] fillBlock = new int[2];
+        if (acceptingCount > 0)
+        {
+            first[blocks] = 0;
+            end[blocks] = acceptingCount;
+            fillBlock[0] = blocks++;
+        }
+        if (acceptingCount < n)
+        {
+            first[blocks] = acceptingCount;
+            end[blocks] = n;
+            fillBlock[1] = blocks++;
+        }
+        int[] position = {0, acceptingCount};
+        for (int d = 0; d < n; d++)
+        {
+            int side = accepting[d] ? 0 : 1;
+            blockOf[d] = fillBlock[side];
+            location[d] = position[side]++;
+            elements[location[d]] = d;
+        }
+
+        // Splitting by either initial block is enough, since the DFA is complete
+        int smaller = blocks == 1 || end[0] - first[0] <= end[1] - first[1] ? 0 : 1;
+        worklist[worklistSize++] = smaller;
+        waiting[smaller] = true;
+
+        int[] splitter = new int[n];
+        while (worklistSize > 0)
+        {
+            // Take the states of a waiting block
+            int s = worklist[--worklistSize];
+            waiting[s] = false;
+            int splitterSize = end[s] - first[s];
+            System.arraycopy(elements, first[s], splitter, 0, splitterSize);
+
+            for (int a = 0; a < k; a++)
+            {
+                // Move the predecessors on event a to the front of their blocks
+                int touchedCount = 0;
+                for (int i = 0; i < splitterSize; i++)
+                {
+                    int q = splitter[i];
+                    for (int j = predecessorStart[a * (n + 1) + q]; j < predecessorStart[a * (n + 1) + q + 1]; j++)
+                    {
+                        int p = predecessors[j];
+                        int b = blockOf[p];
+                        if (marked[b] == 0)
+                        {
+                            touched[touchedCount++] = b;
+                        }
+                        int target = first[b] + marked[b]++;
+                        int other = elements[target];
+                        elements[location[p]] = other;
+                        location[other] = location[p];
+                        elements[target] = p;
+                        location[p] = target;
+                    }
+                }
+
+                // Split every block that has both marked and unmarked states
+                for (int i = 0; i < touchedCount; i++)
+                {
+                    int b = touched[i];
+                    int split = first[b] + marked[b];
+                    marked[b] = 0;
+                    if (split == end[b])
+                    {
+                        continue;
+                    }
+
+                    // The marked states form a new block
+                    int nb = blocks++;
+                    first[nb] = first[b];
+                    end[nb] = split;
+                    first[b] = split;
+                    for (int j = first[nb]; j < end[nb]; j++)
+                    {
+                        blockOf[elements[j]] = nb;
+                    }
+
+                    // A waiting block must be split by both halves, otherwise
+                    // the smaller half is enough
+                    int add = waiting[b] || end[nb] - first[nb] <= end[b] - first[b] ? nb : b;
+                    worklist[worklistSize++] = add;
+                    waiting[add] = true;
+                }
+            }
+        }
+        return blockOf;
+    }
+
+    // Return a new FSA for a DFA with states 0..n-1 named q0, q1, ... in
+    // breadth-first order from the start state
+    // next[d * k + a] is the successor of state d on event symbols[a], or -1
+    // if there is none; states not reachable from the start are left out
+    static FsaImpl build(int n, int start, int k, int[] next, boolean[] accepting, String[] symbols)
+    {
+        // Number states in breadth-first order, keeping each one's distance
+        int[] order = new int[n];
+        int[] number = new int[n];
+        int[] depth = new int[n];
+        Arrays.fill(number, -1);
+        order[0] = start;
+        number[start] = 0;
+        int count = 1;
+        for (int i = 0; i < count; i++)
+        {
+            int d = order[i];
+            for (int a = 0; a < k; a++)
+            {
+                int e = next[d * k + a];
+                if (e >= 0 && number[e] < 0)
+                {
+                    number[e] = count;
+                    depth[e] = depth[d] + 1;
+                    order[count++] = e;
+                }
+            }
+        }
+
+        FsaImpl result = new FsaImpl();
+        result.beginUpdate();
+        try
+        {
+            // Add states in columns by distance from the start
+            State[] states = new State[count];
+            int row = 0;
+            for (int i = 0; i < count; i++)
+            {
+                int d = order[i];
+                row = i > 0 && depth[d] == depth[order[i - 1]] ? row + 1 : 0;
+                states[i] = result.newState("q" + i, MARGIN + COLUMN_WIDTH * depth[d], MARGIN + ROW_HEIGHT * row);
+                states[i].setFinal(accepting[d]);
+            }
+            states[0].setInitial(true);
+
+            // Add transitions
+            for (int i = 0; i < count; i++)
+            {
+                int d = order[i];
+                for (int a = 0; a < k; a++)
+                {
+                    int e = next[d * k + a];
+                    if (e >= 0)
+                    {
+                        result.newTransition(states[i], states[number[e]], symbols[a]);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            result.endUpdate();
+        }
+        return result;
+    }
+}
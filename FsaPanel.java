@@ -3,15 +3,16 @@ import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-public class FsaPanel extends JPanel implements FsaListener
+public class FsaPanel extends JPanel implements FsaChangeListener
 {
     private FsaImpl fsa;
-    private HashSet<State> states;
-    private HashSet<Transition> transitions;
+    private HashMap<State, StateIcon> states;
+    private HashMap<Transition, TransitionIcon> transitions;
     public PanelState panelState = new IdlePanelState(this);
     private boolean drawSelectionRectangle = false;
     private int selRectX;
@@ -27,8 +28,9 @@ public class FsaPanel extends JPanel implements FsaListener
 
         // Initialise FSA and state set
         fsa = new FsaImpl();
-        states = new HashSet<>();
-        transitions = new HashSet<>();
+        states = new HashMap<>();
+        transitions = new HashMap<>();
+        fsa.addChangeListener(this);
 
         // Add mouse event listeners
         this.addMouseListener(mouseListener);
@@ -43,69 +45,76 @@ public class FsaPanel extends JPanel implements FsaListener
     // Sets the Fsa used by the panel
     public void setFsa(FsaImpl fsa)
     {
-        // Clear panel
+        // Clear panel, remove listener from old Fsa
+        this.fsa.removeChangeListener(this);
         this.removeAll();
-        this.repaint();
+        states.clear();
+        transitions.clear();
 
-        // Update Fsa, add listener
+        // Update Fsa, add icons for anything it already contains
         this.fsa = fsa;
-        fsa.addListener(this);
-    }
-
-    @Override
-    public void statesChanged()
-    {
-        // Add missing states
         for (State state : fsa.getStates())
         {
-            if (!states.contains(state))
+            addStateIcon(state);
+        }
+        for (State state : fsa.getStates())
+        {
+            for (Transition transition : state.transitionsFrom())
             {
-                states.add(state);
-                addStateIcon(state);
+                addTransitionIcon(transition);
             }
         }
-
         this.repaint();
+
+        // Add listener
+        fsa.addChangeListener(this);
     }
 
     @Override
-    public void transitionsChanged()
+    public void fsaChanged(FsaChange change)
     {
-        // Add missing transitions
-        for (State state : fsa.getStates())
+        // Remove icons of deleted transitions and states
+        for (Transition transition : change.getRemovedTransitions())
         {
-            for (Transition transition : state.transitionsFrom())
+            TransitionIcon icon = transitions.remove(transition);
+            if (icon != null)
             {
-                if (!transitions.contains(transition))
-                {
-                    transitions.add(transition);
-                    addTransitionIcon(transition);
-                }
+                this.remove(icon);
             }
-            for (Transition transition : state.transitionsTo())
+        }
+        for (State state : change.getRemovedStates())
+        {
+            StateIcon icon = states.remove(state);
+            if (icon != null)
             {
-                if (!transitions.contains(transition))
-                {
-                    transitions.add(transition);
-                    addTransitionIcon(transition);
-                }
+                this.remove(icon);
             }
         }
 
-        this.repaint();
-    }
-
-    @Override
-    public void otherChanged()
-    {
+        // Add icons of new states and transitions
+        for (State state : change.getAddedStates())
+        {
+            addStateIcon(state);
+        }
+        for (Transition transition : change.getAddedTransitions())
+        {
+            addTransitionIcon(transition);
+        }
 
+        this.repaint();
     }
 
     // Add an icon to the panel representing the given state
     private void addStateIcon(State state)
     {
+        if (states.containsKey(state))
+        {
+            return;
+        }
+
         // Create state icon
         StateIcon icon = new StateIcon(state);
+        states.put(state, icon);
 
         // Add mouse event handlers
         icon.addMouseListener(mouseListener);
@@ -118,8 +127,14 @@ public class FsaPanel extends JPanel implements FsaListener
     // Add an icon to the panel representing the given transition
     private void addTransitionIcon(Transition transition)
     {
+        if (transitions.containsKey(transition))
+        {
+            return;
+        }
+
         // Create transition icon
         TransitionIcon icon = new TransitionIcon(transition);
+        transitions.put(transition, icon);
 
         // Add icon to panel
         this.add(icon);
@@ -184,25 +199,20 @@ public class FsaPanel extends JPanel implements FsaListener
     // Delete selected states
     public void deleteSelected()
     {
-        for (StateIcon icon : getStateIcons())
+        // Notify listeners once, after all states are deleted; the
+        // icons of the states and their transitions are removed then
+        fsa.beginUpdate();
+        try
         {
-            if (icon.isSelected)
+            for (State state : getSelectedStates())
             {
-                // Delete attached transition icons
-                for (TransitionIcon transIcon : getTransitionIcons())
-                {
-                    if (icon.state.transitionsTo().contains(transIcon.transition) ||
-                        icon.state.transitionsFrom().contains(transIcon.transition))
-                    {
-                        this.remove(transIcon);
-                    }
-                }
-
-                // Delete state and state icon
-                fsa.removeState(icon.state);
-                this.remove(icon);
+                fsa.removeState(state);
             }
         }
+        finally
+        {
+            fsa.endUpdate();
+        }
     }
 
     // Make selection rectangle visible and set its position and size
@@ -0,0 +1,562 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// Parser for the text FSA format read by FsaReaderWriter
+// Lines are found and split into words in place in a char buffer, numbers
+// are parsed without creating strings, and state and event names are
+// interned so that repeated names do not allocate. Words are separated by
+// single spaces, exactly as if each line were split with String.split(" ").
+// The parser checks the syntax of each record and passes it on to a
+// Records object, which by default transfers it to an Fsa.
+class FsaParser
+{
+    // Receives the records found by the parser, in file order
+    interface Records
+    {
+        public void state(String name, int x, int y, int lineNr) throws FsaFormatException;
+        public void transition(String from, String event, String to, int lineNr) throws FsaFormatException;
+        public void initial(String name, int lineNr) throws FsaFormatException;
+        public void final_(String name, int lineNr) throws FsaFormatException;
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Largest part of a file mapped at once
+    private static final int MAP_WINDOW = 1 << 30;
+
+    // Most words in any valid record
+    private static final int MAX_WORDS = 4;
+
+    private final Records records;
+    private final NameTable names;
+
+    // Bounds of the words of the current line
+    private final int[] wordStart;
+    private final int[] wordEnd;
+
+    public FsaParser(Fsa fsa)
+    {
+        this(new FsaRecords(fsa));
+    }
+
+    public FsaParser(Records records)
+    {
+        this.records = records;
+        this.names = new NameTable();
+        this.wordStart = new int[MAX_WORDS];
+        this.wordEnd = new int[MAX_WORDS];
+    }
+
+    // Read every line from the reader and transfer its records to the FSA
+    public void parse(Reader r)
+            throws IOException, FsaFormatException
+    {
+        char[] buf = new char[BUFFER_SIZE];
+        int start = 0;
+        int scan = 0;
+        int end = 0;
+        int lineNr = 0;
+        boolean skipLF = false;
+
+        while (true)
+        {
+            // Look for the end of the current line
+            int i = scan;
+            while (i < end && buf[i] != '\n' && buf[i] != '\r')
+            {
+                i++;
+            }
+
+            if (i < end)
+            {
+                // Parse line, then skip its terminator (\n, \r or \r\n)
+                parseLine(buf, start, i, ++lineNr);
+                if (buf[i] == '\r')
+                {
+                    if (i + 1 == end)
+                    {
+                        skipLF = true;
+                    }
+                    else if (buf[i + 1] == '\n')
+                    {
+                        i++;
+                    }
+                }
+                start = i + 1;
+                scan = start;
+                continue;
+            }
+
+            // Make room for more input, keeping the unfinished line
+            if (start > 0)
+            {
+                System.arraycopy(buf, start, buf, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            else if (end == buf.length)
+            {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            scan = end;
+
+            int n = r.read(buf, end, buf.length - end);
+            if (n < 0)
+            {
+                // Parse last line if it has no terminator
+                if (end > start)
+                {
+                    parseLine(buf, start, end, ++lineNr);
+                }
+                return;
+            }
+            end += n;
+
+            // Finish a \r\n terminator split between two reads
+            if (skipLF)
+            {
+                skipLF = false;
+                if (buf[scan] == '\n')
+                {
+                    scan++;
+                    start = scan;
+                }
+            }
+        }
+    }
+
+    // Read every line of a file and transfer its records to the FSA
+    public void parse(FileChannel ch)
+            throws IOException, FsaFormatException
+    {
+        parse(ch, 0, ch.size(), 1);
+    }
+
+    // Read the lines in bytes [from, to) of a file, the first of which is
+    // line firstLineNr, and transfer their records to the FSA
+    // The file is memory-mapped in large windows and lines are copied
+    // straight from the mapped bytes; only lines containing non-ASCII
+    // bytes are decoded, using the default charset (as FileReader does)
+    public void parse(FileChannel ch, long from, long to, int firstLineNr)
+            throws IOException, FsaFormatException
+    {
+        long position = from;
+        char[] line = new char[256];
+        int lineNr = firstLineNr - 1;
+        boolean skipLF = false;
+
+        while (position < to)
+        {
+            // Map the next window, starting at the beginning of a line
+            int length = (int)Math.min(MAP_WINDOW, to - position);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int start = 0;
+
+            // Finish a \r\n terminator split between two windows
+            if (skipLF)
+            {
+                skipLF = false;
+                if (map.get(0) == '\n')
+                {
+                    start = 1;
+                }
+            }
+
+            int i = start;
+            boolean ascii = true;
+            while (i < length)
+            {
+                byte b = map.get(i);
+                if (b != '\n' && b != '\r')
+                {
+                    ascii &= b >= 0;
+                    i++;
+                    continue;
+                }
+
+                // Copy line into char buffer and parse it
+                int lineLength = i - start;
+                if (ascii)
+                {
+                    if (lineLength > line.length)
+                    {
+                        line = new char[Math.max(lineLength, 2 * line.length)];
+                    }
+                    for (int j = 0; j < lineLength; j++)
+                    {
+                        line[j] = (char)map.get(start + j);
+                    }
+                    parseLine(line, 0, lineLength, ++lineNr);
+                }
+                else
+                {
+                    char[] decoded = decode(map, start, i);
+                    parseLine(decoded, 0, decoded.length, ++lineNr);
+                }
+
+                // Skip terminator (\n, \r or \r\n)
+                if (b == '\r')
+                {
+                    if (i + 1 == length)
+                    {
+                        skipLF = position + length < to;
+                    }
+                    else if (map.get(i + 1) == '\n')
+                    {
+                        i++;
+                    }
+                }
+                start = ++i;
+                ascii = true;
+            }
+
+            // The unfinished line at the end of the window starts the next one
+            if (position + length == to)
+            {
+                // Parse last line if it has no terminator
+                if (start < length)
+                {
+                    char[] decoded = decode(map, start, length);
+                    parseLine(decoded, 0, decoded.length, ++lineNr);
+                }
+                return;
+            }
+            if (start == 0)
+            {
+                throw new IOException("Line " + (lineNr + 1) + ": Line too long!");
+            }
+            position += start;
+        }
+    }
+
+    // Decode bytes map[start..end) using the default charset
+    private static char[] decode(MappedByteBuffer map, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int j = 0; j < bytes.length; j++)
+        {
+            bytes[j] = map.get(start + j);
+        }
+        return new String(bytes, Charset.defaultCharset()).toCharArray();
+    }
+
+    // Parse the line in buf[start..end) and pass its record on
+    public void parseLine(char[] buf, int start, int end, int lineNr)
+            throws FsaFormatException
+    {
+        // Ignore empty lines and comments
+        if (end == start || buf[start] == '#')
+        {
+            return;
+        }
+
+        // Split line into words
+        int words = split(buf, start, end);
+        if (words == 0)
+        {
+            return;
+        }
+
+        // State record
+        if (wordEquals(buf, 0, "state"))
+        {
+            // If invalid word count, throw exception
+            if (words != 4)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid state record syntax!");
+            }
+
+            int x;
+            int y;
+            try
+            {
+                x = parseInt(buf, 2);
+                y = parseInt(buf, 3);
+            }
+            // If syntax is invalid, throw exception
+            catch (NumberFormatException ex)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid state record arguments!");
+            }
+            records.state(name(buf, 1), x, y, lineNr);
+        }
+        // Transition record
+        else if (wordEquals(buf, 0, "transition"))
+        {
+            // If invalid word count, throw exception
+            if (words != 4)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid transition record syntax!");
+            }
+
+            // Handle epsilon transitions
+            String eventName = wordEquals(buf, 2, "?") ? null : name(buf, 2);
+            records.transition(name(buf, 1), eventName, name(buf, 3), lineNr);
+        }
+        // Initial record
+        else if (wordEquals(buf, 0, "initial"))
+        {
+            // If invalid word count, throw exception
+            if (words != 2)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid initial record syntax!");
+            }
+            records.initial(name(buf, 1), lineNr);
+        }
+        // Final record
+        else if (wordEquals(buf, 0, "final"))
+        {
+            // If invalid word count, throw exception
+            if (words != 2)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid final record syntax!");
+            }
+            records.final_(name(buf, 1), lineNr);
+        }
+        else
+        {
+            throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid record!");
+        }
+    }
+
+    // Split buf[start..end) at every space, recording the bounds of the
+    // first MAX_WORDS words. Trailing empty words are dropped, as by
+    // String.split(" "). Returns the number of words.
+    private int split(char[] buf, int start, int end)
+    {
+        int count = 0;
+        int nonEmpty = 0;
+        int wordBegin = start;
+        for (int i = start; i <= end; i++)
+        {
+            if (i == end || buf[i] == ' ')
+            {
+                if (count < MAX_WORDS)
+                {
+                    wordStart[count] = wordBegin;
+                    wordEnd[count] = i;
+                }
+                count++;
+                if (i > wordBegin)
+                {
+                    nonEmpty = count;
+                }
+                wordBegin = i + 1;
+            }
+        }
+        return nonEmpty;
+    }
+
+    // Indicate if word w of the current line equals the given string
+    private boolean wordEquals(char[] buf, int w, String s)
+    {
+        int start = wordStart[w];
+        if (wordEnd[w] - start != s.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++)
+        {
+            if (buf[start + i] != s.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Return word w of the current line as an interned name
+    private String name(char[] buf, int w)
+    {
+        return names.intern(buf, wordStart[w], wordEnd[w]);
+    }
+
+    // Parse word w of the current line as an int, as Integer.parseInt does
+    private int parseInt(char[] buf, int w)
+            throws NumberFormatException
+    {
+        int start = wordStart[w];
+        int end = wordEnd[w];
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf[i] == '-' || buf[i] == '+'))
+        {
+            negative = buf[i] == '-';
+            i++;
+        }
+
+        // Up to 9 ASCII digits can not overflow; leave anything else to Integer.parseInt
+        if (i == end || end - i > 9)
+        {
+            return Integer.parseInt(new String(buf, start, end - start));
+        }
+        int value = 0;
+        for (; i < end; i++)
+        {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9)
+            {
+                return Integer.parseInt(new String(buf, start, end - start));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Open-addressing table of names, so that a name seen before is
+    // returned without creating a new String
+    private static class NameTable
+    {
+        private String[] keys = new String[1024];
+        private int size = 0;
+
+        // Return the name in buf[start..end), adding it if it is new
+        String intern(char[] buf, int start, int end)
+        {
+            // Same hash as String.hashCode()
+            int hash = 0;
+            for (int i = start; i < end; i++)
+            {
+                hash = 31 * hash + buf[i];
+            }
+
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null)
+            {
+                String key = keys[slot];
+                if (key.hashCode() == hash && matches(key, buf, start, end))
+                {
+                    return key;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            String name = new String(buf, start, end - start);
+            keys[slot] = name;
+            if (++size * 2 > keys.length)
+            {
+                grow();
+            }
+            return name;
+        }
+
+        // Indicate if the key equals buf[start..end)
+        private static boolean matches(String key, char[] buf, int start, int end)
+        {
+            if (key.length() != end - start)
+            {
+                return false;
+            }
+            for (int i = start; i < end; i++)
+            {
+                if (key.charAt(i - start) != buf[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Double the table size
+        private void grow()
+        {
+            String[] old = keys;
+            keys = new String[old.length * 2];
+            int mask = keys.length - 1;
+            for (String key : old)
+            {
+                if (key != null)
+                {
+                    int hash = key.hashCode();
+                    int slot = (hash ^ (hash >>> 16)) & mask;
+                    while (keys[slot] != null)
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                }
+            }
+        }
+    }
+
+    // Transfers records to an Fsa
+    static class FsaRecords implements Records
+    {
+        private final Fsa fsa;
+
+        FsaRecords(Fsa fsa)
+        {
+            this.fsa = fsa;
+        }
+
+        public void state(String name, int x, int y, int lineNr)
+                throws FsaFormatException
+        {
+            // Try to add state to FSA
+            try
+            {
+                fsa.newState(name, x, y);
+            }
+            // If name is invalid, throw exception
+            catch (IllegalArgumentException ex)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid state record arguments!");
+            }
+        }
+
+        public void transition(String from, String event, String to, int lineNr)
+                throws FsaFormatException
+        {
+            // Ensure FSA contains specified from and to states
+            State fromState = fsa.findState(from);
+            State toState = fsa.findState(to);
+            if (fromState == null || toState == null)
+            {
+                // State not found, throw exception
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid transition record syntax!");
+            }
+
+            // Add transition to FSA
+            try
+            {
+                fsa.newTransition(fromState, toState, event);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": Invalid transition record arguments!");
+            }
+        }
+
+        public void initial(String name, int lineNr)
+                throws FsaFormatException
+        {
+            // Mark state as initial state
+            findState(name, lineNr).setInitial(true);
+        }
+
+        public void final_(String name, int lineNr)
+                throws FsaFormatException
+        {
+            // Mark state as final state
+            findState(name, lineNr).setFinal(true);
+        }
+
+        // Return the named state, throwing an exception if there is none
+        private State findState(String name, int lineNr)
+                throws FsaFormatException
+        {
+            State state = fsa.findState(name);
+            if (state == null)
+            {
+                // State not found, throw exception
+                throw new FsaFormatException(lineNr, "Line " + lineNr + ": State not found in FSA!");
+            }
+            return state;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Finds states that can not take part in recognising any sequence of events
+// Unreachable states can not be reached from an initial state and dead
+// states can not reach a final state, following transitions of any kind.
+// They are found by two breadth-first searches over the transitions, one
+// forwards from the initial states and one backwards from the final states,
+// each in time proportional to the number of states and transitions.
+public class FsaReachability
+{
+    private FsaReachability()
+    {
+
+    }
+
+    // Return the states that can not be reached from any initial state
+    public static Set<State> unreachableStates(Fsa fsa)
+    {
+        return unvisited(fsa, fsa.getInitialStates(), true);
+    }
+
+    // Return the states from which no final state can be reached
+    public static Set<State> deadStates(Fsa fsa)
+    {
+        return unvisited(fsa, fsa.getFinalStates(), false);
+    }
+
+    // Remove every unreachable or dead state, and its transitions, from the
+    // FSA, notifying its listeners once
+    // This does not change the sequences of events the FSA recognises
+    // Returns the removed states
+    public static Set<State> trim(Fsa fsa)
+    {
+        Set<State> removed = unreachableStates(fsa);
+        removed.addAll(deadStates(fsa));
+
+        fsa.beginUpdate();
+        try
+        {
+            for (State s : removed)
+            {
+                fsa.removeState(s);
+            }
+        }
+        finally
+        {
+            fsa.endUpdate();
+        }
+        return removed;
+    }
+
+    // Return the states of the FSA not visited by a breadth-first search
+    // from the given states, following transitions forwards or backwards
+    private static Set<State> unvisited(Fsa fsa, Set<State> from, boolean forwards)
+    {
+        HashSet<State> visited = new HashSet<>(from);
+        ArrayDeque<State> queue = new ArrayDeque<>(from);
+        while (!queue.isEmpty())
+        {
+            State s = queue.poll();
+            for (Transition t : forwards ? s.transitionsFrom() : s.transitionsTo())
+            {
+                State next = forwards ? t.toState() : t.fromState();
+                if (visited.add(next))
+                {
+                    queue.add(next);
+                }
+            }
+        }
+
+        LinkedHashSet<State> result = new LinkedHashSet<>();
+        for (State s : fsa.getStates())
+        {
+            if (!visited.contains(s))
+            {
+                result.add(s);
+            }
+        }
+        return result;
+    }
+}
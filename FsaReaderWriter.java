@@ -1,6 +1,11 @@
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 class FsaReaderWriter implements FsaIo {
+    // Files at least this large are read by several threads
+    private static final long PARALLEL_THRESHOLD = 64 << 20;
+
     public FsaReaderWriter()
     {
 
@@ -13,122 +18,48 @@ class FsaReaderWriter implements FsaIo {
     public void read(Reader r, Fsa f)
             throws IOException, FsaFormatException
     {
-        LineNumberReader lnr = new LineNumberReader(r);
-        String line = lnr.readLine();
-        while (line != null)
+        // Parse records in place from a char buffer, notifying listeners
+        // of the FSA once at the end
+        f.beginUpdate();
+        try
         {
-            // Ignore empty lines and comments
-            if (line.length() > 0 && line.charAt(0) != '#')
-            {
-                // Split line into words
-                String[] words = line.split(" ");
-                if (words.length > 0)
-                {
-                    // State record
-                    if (words[0].equals("state"))
-                    {
-                        // If invalid word count, throw exception
-                        if (words.length != 4)
-                        {
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid state record syntax!");
-                        }
-
-                        // Try to add state to FSA
-                        try
-                        {
-                            f.newState(words[1], Integer.parseInt(words[2]), Integer.parseInt(words[3]));
-                        }
-                        // If syntax is invalid, throw exception
-                        catch (IllegalArgumentException ex)
-                        {
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid state record arguments!");
-                        }
-                    }
-                    // Transition record
-                    else if (words[0].equals("transition"))
-                    {
-                        // If invalid word count, throw exception
-                        if (words.length != 4)
-                        {
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid transition record syntax!");
-                        }
-
-                        try
-                        {
-                            // Handle epsilon transitions
-                            String eventName = words[2].equals("?") ? null : words[2];
-
-                            // Ensure FSA contains specified from and to states
-                            State fromState = f.findState(words[1]);
-                            State toState = f.findState(words[3]);
-                            if (fromState == null || toState == null)
-                            {
-                                // State not found, throw exception
-                                throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid transition record syntax!");
-                            }
-
-                            // Add transition to FSA
-                            f.newTransition(fromState, toState, eventName);
-                        }
-                        catch (IllegalArgumentException ex)
-                        {
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid transition record arguments!");
-                        }
-                    }
-                    // Initial record
-                    else if (words[0].equals("initial"))
-                    {
-                        // If invalid word count, throw exception
-                        if (words.length != 2)
-                        {
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid initial record syntax!");
-                        }
+            new FsaParser(f).parse(r);
+        }
+        finally
+        {
+            f.endUpdate();
+        }
 
-                        // Ensure FSA contains specified state
-                        State state = f.findState(words[1]);
-                        if (state == null)
-                        {
-                            // State not found, throw exception
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": State not found in FSA!");
-                        }
-                        else
-                        {
-                            // Mark state as initial state
-                            state.setInitial(true);
-                        }
-                    }
-                    // Final record
-                    else if (words[0].equals("final"))
-                    {
-                        // If invalid word count, throw exception
-                        if (words.length != 2)
-                        {
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid final record syntax!");
-                        }
+        r.close();
+    }
 
-                        // Ensure FSA contains specified state
-                        State state = f.findState(words[1]);
-                        if (state == null)
-                        {
-                            // State not found, throw exception
-                            throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": State not found in FSA!");
-                        }
-                        else
-                        {
-                            // Mark state as final state
-                            state.setFinal(true);
-                        }
-                    }
-                    else
-                    {
-                        throw new FsaFormatException(lnr.getLineNumber(), "Line " + lnr.getLineNumber() + ": Invalid record!");
-                    }
-                }
-            }
-            line = lnr.readLine();
+    //Read the description of a finite-state automaton from the file,
+    //and transfer it to Fsa, f.
+    //The file is memory-mapped and parsed directly from its bytes, so
+    //large files are not decoded and copied through a Reader; very large
+    //files are parsed by several threads.
+    //If an error is detected, throw an exception that indicates the line
+    //where the error was detected, and has a suitable text message
+    public void read(File file, Fsa f)
+            throws IOException, FsaFormatException
+    {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (processors > 1 && file.length() >= PARALLEL_THRESHOLD)
+        {
+            new ParallelFsaLoader(processors).read(file, f);
+            return;
         }
 
-        lnr.close();
+        // Notify listeners of the FSA once at the end
+        f.beginUpdate();
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            new FsaParser(f).parse(ch);
+        }
+        finally
+        {
+            f.endUpdate();
+        }
     }
 
 
@@ -136,35 +67,52 @@ class FsaReaderWriter implements FsaIo {
     public void write(Writer w, Fsa f)
             throws IOException
     {
+        BufferedWriter bw = new BufferedWriter(w, 1 << 16);
+
         for (State s : f.getStates())
         {
             // Write state records
-            w.write("state" + " " + s.getName() + " " + s.getXpos() + " " + s.getYpos() + '\n');
+            bw.write("state ");
+            bw.write(s.getName());
+            bw.write(' ');
+            bw.write(Integer.toString(s.getXpos()));
+            bw.write(' ');
+            bw.write(Integer.toString(s.getYpos()));
+            bw.write('\n');
         }
 
         for (State s : f.getStates())
         {
             // Write transition records
-            for (State dest : f.getStates())
+            for (Transition t : s.transitionsFrom())
             {
-                for (Transition t : f.findTransition(s, dest))
-                {
-                    String event = t.eventName() != null ? t.eventName() : "?";
-                    w.write("transition" + " " + t.fromState().getName() + " " + event + " " + t.toState().getName() + '\n');
-                }
+                bw.write("transition ");
+                bw.write(s.getName());
+                bw.write(' ');
+                bw.write(t.eventName() != null ? t.eventName() : "?");
+                bw.write(' ');
+                bw.write(t.toState().getName());
+                bw.write('\n');
             }
 
             // Write initial records
             if (s.isInitial())
             {
-                w.write("initial" + " " + s.getName() + '\n');
+                bw.write("initial ");
+                bw.write(s.getName());
+                bw.write('\n');
             }
 
             // Write final records
             if (s.isFinal())
             {
-                w.write("final" + " " + s.getName() + '\n');
+                bw.write("final ");
+                bw.write(s.getName());
+                bw.write('\n');
             }
         }
+
+        // Flush buffered output, leaving w open for the caller
+        bw.flush();
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+
+// Runs event traces through an FSA without the editor
+// Usage: java FsaRunner [-engine dfa|nfa|lazy|fsa] [-cache n] [-quiet]
+//                       machine.fsa|machine.fsab [traces...]
+// Each line of a trace file (or of standard input, if no trace files or
+// "-" are given) is one trace: event names separated by spaces or tabs.
+// For each trace "accept" or "reject" is written to standard output, in
+// order; a summary with throughput is written to standard error at the end.
+// Engines:
+//   dfa   determinise the FSA once, then one table lookup per event (default)
+//   nfa   simulate the set of current states directly
+//   lazy  determinise on demand, caching at most -cache DFA states
+//   fsa   the FsaImpl simulation used by the editor
+public class FsaRunner
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_CACHE = 10000;
+
+    private final FsaSim sim;
+    private final Writer out;
+    private final boolean quiet;
+
+    private long traces = 0;
+    private long accepted = 0;
+    private long events = 0;
+    private long chars = 0;
+
+    public FsaRunner(FsaSim sim, Writer out, boolean quiet)
+    {
+        this.sim = sim;
+        this.out = out;
+        this.quiet = quiet;
+    }
+
+    public static void main(String[] args)
+    {
+        String engine = "dfa";
+        int cache = DEFAULT_CACHE;
+        boolean quiet = false;
+        ArrayList<String> files = new ArrayList<>();
+
+        // Parse options
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                if (args[i].equals("-engine") && i + 1 < args.length)
+                {
+                    engine = args[++i];
+                }
+                else if (args[i].equals("-cache") && i + 1 < args.length)
+                {
+                    cache = Integer.parseInt(args[++i]);
+                }
+                else if (args[i].equals("-quiet"))
+                {
+                    quiet = true;
+                }
+                else if (args[i].startsWith("-") && args[i].length() > 1)
+                {
+                    throw new IllegalArgumentException("Unknown option " + args[i] + "!");
+                }
+                else
+                {
+                    files.add(args[i]);
+                }
+            }
+            if (files.isEmpty())
+            {
+                throw new IllegalArgumentException("No FSA file given!");
+            }
+        }
+        catch (IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.err.println("Usage: java FsaRunner [-engine dfa|nfa|lazy|fsa] [-cache n] [-quiet] machine.fsa [traces...]");
+            System.exit(2);
+            return;
+        }
+
+        // Load FSA
+        FsaImpl fsa = new FsaImpl();
+        File fsaFile = new File(files.remove(0));
+        try
+        {
+            FsaStreamIo.forFile(fsaFile).read(fsaFile, fsa);
+        }
+        catch (IOException | FsaFormatException ex)
+        {
+            System.err.println(fsaFile + ": " + ex.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        // Run traces
+        try
+        {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE);
+            FsaRunner runner = new FsaRunner(createSim(engine, cache, fsa), out, quiet);
+            long start = System.nanoTime();
+            if (files.isEmpty())
+            {
+                files.add("-");
+            }
+            for (String name : files)
+            {
+                if (name.equals("-"))
+                {
+                    runner.run(System.in);
+                }
+                else
+                {
+                    try (InputStream in = new FileInputStream(name))
+                    {
+                        runner.run(in);
+                    }
+                }
+            }
+            out.flush();
+            runner.printSummary(System.nanoTime() - start);
+        }
+        catch (IllegalArgumentException | IOException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        }
+    }
+
+    // Return a simulation of the FSA using the named engine
+    private static FsaSim createSim(String engine, int cache, FsaImpl fsa)
+    {
+        switch (engine)
+        {
+            case "dfa":
+                return fsa.freeze().compile();
+            case "nfa":
+                return fsa.freeze().newSim();
+            case "lazy":
+                return new LazyDfaSim(fsa.freeze().tables(), cache);
+            case "fsa":
+                return fsa;
+            default:
+                throw new IllegalArgumentException("Unknown engine " + engine + "!");
+        }
+    }
+
+    // Run every trace (line) of the stream through the FSA
+    public void run(InputStream in)
+            throws IOException
+    {
+        BufferedReader r = new BufferedReader(new InputStreamReader(in), BUFFER_SIZE);
+        String line;
+        while ((line = r.readLine()) != null)
+        {
+            boolean recognised = recognises(line);
+            traces++;
+            chars += line.length() + 1;
+            if (recognised)
+            {
+                accepted++;
+            }
+            if (!quiet)
+            {
+                out.write(recognised ? "accept\n" : "reject\n");
+            }
+        }
+    }
+
+    // Run the events of one trace through the FSA
+    private boolean recognises(String line)
+    {
+        sim.reset();
+        int length = line.length();
+        int i = 0;
+        while (i < length)
+        {
+            // Skip separators
+            char c = line.charAt(i);
+            if (c == ' ' || c == '\t')
+            {
+                i++;
+                continue;
+            }
+
+            // Take one step per event name
+            int start = i;
+            while (i < length && line.charAt(i) != ' ' && line.charAt(i) != '\t')
+            {
+                i++;
+            }
+            sim.step(line.substring(start, i));
+            events++;
+        }
+        return sim.isRecognised();
+    }
+
+    // Write the number of traces and the throughput to standard error
+    public void printSummary(long nanos)
+    {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.err.printf("%d traces, %d accepted, %d rejected, %d events in %.3f s%n",
+                traces, accepted, traces - accepted, events, seconds);
+        System.err.printf("%.0f traces/s, %.0f events/s, %.1f MB/s%n",
+                traces / seconds, events / seconds, chars / seconds / 1e6);
+    }
+}
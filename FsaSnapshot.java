@@ -0,0 +1,152 @@
+import java.util.HashMap;
+
+// Immutable, array-backed copy of an Fsa
+// States are numbered 0..stateCount()-1 and transitions 0..transitionCount()-1,
+// with the transitions leaving each state numbered contiguously. A snapshot
+// never changes after it is created, so any number of threads may read it
+// and simulate against it while the live Fsa continues to be edited. All
+// simulations created from a snapshot share its arrays and its compiled
+// tables.
+// A snapshot shares nothing with the Fsa it was taken from: Fsa.freeze()
+// copies every state and transition, in O(n + m) time, and must be called
+// on the thread that edits the Fsa, which then hands the snapshot to the
+// readers. FsaImpl returns its last snapshot again while it has not
+// changed, so freezing an unchanged Fsa repeatedly costs nothing.
+public final class FsaSnapshot
+{
+    private final String[] names;
+    private final int[] xPos;
+    private final int[] yPos;
+    private final boolean[] initial;
+    private final boolean[] final_;
+    private final HashMap<String, Integer> stateIndex;
+
+    // Transitions of state s are numbered transitionStart[s]..transitionStart[s+1]-1
+    private final int[] transitionStart;
+    private final int[] transitionTo;
+    private final String[] transitionEvent;
+
+    // Built on first use; FsaTables and CompiledFsa are immutable, so a
+    // race between threads at most builds them twice
+    private volatile FsaTables tables;
+    private volatile CompiledFsa compiled;
+
+    FsaSnapshot(String[] names, int[] xPos, int[] yPos, boolean[] initial, boolean[] final_,
+                int[] transitionStart, int[] transitionTo, String[] transitionEvent)
+    {
+        this.names = names;
+        this.xPos = xPos;
+        this.yPos = yPos;
+        this.initial = initial;
+        this.final_ = final_;
+        this.transitionStart = transitionStart;
+        this.transitionTo = transitionTo;
+        this.transitionEvent = transitionEvent;
+
+        stateIndex = new HashMap<>();
+        for (int s = 0; s < names.length; s++)
+        {
+            stateIndex.put(names[s], s);
+        }
+    }
+
+    // Return the number of states
+    public int stateCount()
+    {
+        return names.length;
+    }
+
+    // Return the number of the state with the given name, or -1 if there is none
+    public int findState(String stateName)
+    {
+        Integer s = stateIndex.get(stateName);
+        return s == null ? -1 : s;
+    }
+
+    // Return the name of state s
+    public String stateName(int s)
+    {
+        return names[s];
+    }
+
+    // Return the X position of state s
+    public int getXpos(int s)
+    {
+        return xPos[s];
+    }
+
+    // Return the Y position of state s
+    public int getYpos(int s)
+    {
+        return yPos[s];
+    }
+
+    // Indicate if state s is an initial state
+    public boolean isInitial(int s)
+    {
+        return initial[s];
+    }
+
+    // Indicate if state s is a final state
+    public boolean isFinal(int s)
+    {
+        return final_[s];
+    }
+
+    // Return the number of transitions
+    public int transitionCount()
+    {
+        return transitionTo.length;
+    }
+
+    // Number of the first transition from state s
+    // (the transitions of s end at transitionStart(s + 1))
+    public int transitionStart(int s)
+    {
+        return transitionStart[s];
+    }
+
+    // Return the to-state of transition t
+    public int transitionTo(int t)
+    {
+        return transitionTo[t];
+    }
+
+    // Return the event name of transition t (null for an epsilon-transition)
+    public String transitionEvent(int t)
+    {
+        return transitionEvent[t];
+    }
+
+    // Return the simulation tables of this snapshot
+    public FsaTables tables()
+    {
+        FsaTables t = tables;
+        if (t == null)
+        {
+            t = new FsaTables(this);
+            tables = t;
+        }
+        return t;
+    }
+
+    // Return the determinised form of this snapshot
+    // Its recognises()/recogniseAll() methods may be used from any thread
+    public CompiledFsa compile()
+    {
+        CompiledFsa c = compiled;
+        if (c == null)
+        {
+            c = new CompiledFsa(tables());
+            compiled = c;
+        }
+        return c;
+    }
+
+    // Return a new simulation of this snapshot
+    // Each thread should use its own simulation
+    public FsaSim newSim()
+    {
+        return new BitSetFsaSim(tables());
+    }
+}
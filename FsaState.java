@@ -15,6 +15,9 @@ public class FsaState implements State
 
     private HashSet<StateListener> listeners;
 
+    // Run when a property that FsaSnapshot copies changes, or null
+    private Runnable changeHook;
+
     public FsaState(String name, HashSet<Transition> from, HashSet<Transition> to, int x, int y)
     {
         this.name = name;
@@ -37,6 +40,13 @@ public class FsaState implements State
         listeners.remove(sl);
     }
 
+    // Set what to run when the position or initial/final flags change
+    // (but not the current flag), or null for nothing
+    void setChangeHook(Runnable hook)
+    {
+        changeHook = hook;
+    }
+
     //Return a set containing all transitions FROM this state
     public HashSet<Transition> transitionsFrom()
     {
@@ -57,6 +67,12 @@ public class FsaState implements State
         xPos += dx;
         yPos += dy;
 
+        // Tell the owning FSA that its snapshot is out of date
+        if (changeHook != null)
+        {
+            changeHook.run();
+        }
+
         // Notify state listeners
         for (StateListener sl : listeners)
         {
@@ -100,6 +116,12 @@ public class FsaState implements State
     {
         initial = b;
 
+        // Tell the owning FSA that its snapshot is out of date
+        if (changeHook != null)
+        {
+            changeHook.run();
+        }
+
         // Notify state listeners
         for (StateListener sl : listeners)
         {
@@ -118,6 +140,12 @@ public class FsaState implements State
     {
         final_ = b;
 
+        // Tell the owning FSA that its snapshot is out of date
+        if (changeHook != null)
+        {
+            changeHook.run();
+        }
+
         // Notify state listeners
         for (StateListener sl : listeners)
         {
@@ -0,0 +1,62 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface FsaStreamIo
+{
+    //This class handles reading and writing FSA representations as
+    //bytes, in any format: text formats also implement FsaIo, which adds
+    //Reader/Writer methods, while binary formats implement only this
+
+    //Read the description of a finite-state automaton from the
+    //InputStream, in, and transfer it to Fsa, f.
+    //If an error is detected, throw an exception that indicates where
+    //the error was detected, and has a suitable text message
+    public void read(InputStream in, Fsa f)
+      throws IOException, FsaFormatException;
+
+
+    //Write a representation of the Fsa, f, to the OutputStream, out.
+    public void write(OutputStream out, Fsa f)
+      throws IOException;
+
+
+    //Read the description of a finite-state automaton from the
+    //file and transfer it to Fsa, f.
+    public default void read(File file, Fsa f)
+      throws IOException, FsaFormatException
+    {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file)))
+        {
+            read(in, f);
+        }
+    }
+
+
+    //Write a representation of the Fsa, f, to the file.
+    public default void write(File file, Fsa f)
+      throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+        {
+            write(out, f);
+        }
+    }
+
+
+    //Return the FsaStreamIo that handles the format of the given file,
+    //chosen by its extension: binary for .fsab, otherwise text
+    public static FsaStreamIo forFile(File file)
+    {
+        if (file.getName().toLowerCase().endsWith(".fsab"))
+        {
+            return new FsaBinaryReaderWriter();
+        }
+        return new FsaReaderWriter();
+    }
+}
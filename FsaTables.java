@@ -0,0 +1,210 @@
+import java.util.HashMap;
+
+// Dense, array-backed form of an Fsa used by the simulation engines
+// States are numbered 0..stateCount()-1, event names are interned to
+// symbols 0..symbolCount()-1, and the transitions leaving each state are
+// stored contiguously (labelled and epsilon transitions separately).
+// Use FsaSnapshot.tables(), which builds the tables of a snapshot once.
+public class FsaTables
+{
+    private final String[] names;
+    private final String[] symbols;
+    private final HashMap<String, Integer> symbolIndex;
+    private final long[] initialSet;
+    private final long[] finalSet;
+
+    // Labelled transitions of state s are edgeSymbol/edgeTarget[edgeStart[s]..edgeStart[s+1]-1]
+    private final int[] edgeStart;
+    private final int[] edgeSymbol;
+    private final int[] edgeTarget;
+
+    // Epsilon transitions of state s are epsTarget[epsStart[s]..epsStart[s+1]-1]
+    private final int[] epsStart;
+    private final int[] epsTarget;
+
+    public FsaTables(FsaSnapshot snapshot)
+    {
+        // Record names and initial/final states
+        int n = snapshot.stateCount();
+        names = new String[n];
+        initialSet = new long[StateSet.wordCount(n)];
+        finalSet = new long[StateSet.wordCount(n)];
+        for (int i = 0; i < n; i++)
+        {
+            names[i] = snapshot.stateName(i);
+            if (snapshot.isInitial(i))
+            {
+                StateSet.add(initialSet, i);
+            }
+            if (snapshot.isFinal(i))
+            {
+                StateSet.add(finalSet, i);
+            }
+        }
+
+        // Intern event names and count transitions
+        symbolIndex = new HashMap<>();
+        int epsCount = 0;
+        for (int t = 0; t < snapshot.transitionCount(); t++)
+        {
+            String event = snapshot.transitionEvent(t);
+            if (event == null)
+            {
+                epsCount++;
+            }
+            else
+            {
+                symbolIndex.putIfAbsent(event, symbolIndex.size());
+            }
+        }
+        int edgeCount = snapshot.transitionCount() - epsCount;
+        symbols = new String[symbolIndex.size()];
+        for (String event : symbolIndex.keySet())
+        {
+            symbols[symbolIndex.get(event)] = event;
+        }
+
+        // Split transitions of each state into labelled and epsilon transitions
+        edgeStart = new int[n + 1];
+        edgeSymbol = new int[edgeCount];
+        edgeTarget = new int[edgeCount];
+        epsStart = new int[n + 1];
+        epsTarget = new int[epsCount];
+        int e = 0;
+        int p = 0;
+        for (int i = 0; i < n; i++)
+        {
+            edgeStart[i] = e;
+            epsStart[i] = p;
+            for (int t = snapshot.transitionStart(i); t < snapshot.transitionStart(i + 1); t++)
+            {
+                String event = snapshot.transitionEvent(t);
+                if (event == null)
+                {
+                    epsTarget[p++] = snapshot.transitionTo(t);
+                }
+                else
+                {
+                    edgeSymbol[e] = symbolIndex.get(event);
+                    edgeTarget[e++] = snapshot.transitionTo(t);
+                }
+            }
+        }
+        edgeStart[n] = e;
+        epsStart[n] = p;
+    }
+
+    // Return the number of states
+    public int stateCount()
+    {
+        return names.length;
+    }
+
+    // Return the name of state s
+    public String stateName(int s)
+    {
+        return names[s];
+    }
+
+    // Return the number of distinct (non-epsilon) event names
+    public int symbolCount()
+    {
+        return symbols.length;
+    }
+
+    // Return the event name of symbol a
+    public String symbolName(int a)
+    {
+        return symbols[a];
+    }
+
+    // Return the symbol of the given event name, or -1 if no transition uses it
+    public int symbolOf(String event)
+    {
+        Integer a = event == null ? null : symbolIndex.get(event);
+        return a == null ? -1 : a;
+    }
+
+    // Return a new bit set containing the initial states
+    public long[] initialSet()
+    {
+        return initialSet.clone();
+    }
+
+    // Return the bit set of final states (must not be modified)
+    public long[] finalSet()
+    {
+        return finalSet;
+    }
+
+    // Index of the first labelled transition of state s
+    // (the transitions of s end at edgeStart(s + 1))
+    public int edgeStart(int s)
+    {
+        return edgeStart[s];
+    }
+
+    // Return the symbol of labelled transition e
+    public int edgeSymbol(int e)
+    {
+        return edgeSymbol[e];
+    }
+
+    // Return the target state of labelled transition e
+    public int edgeTarget(int e)
+    {
+        return edgeTarget[e];
+    }
+
+    // Index of the first epsilon transition of state s
+    // (the epsilon transitions of s end at epsStart(s + 1))
+    public int epsStart(int s)
+    {
+        return epsStart[s];
+    }
+
+    // Return the target state of epsilon transition p
+    public int epsTarget(int p)
+    {
+        return epsTarget[p];
+    }
+
+    // Add to the bit set every state reachable from it by epsilon transitions
+    public void close(long[] set)
+    {
+        if (epsTarget.length > 0)
+        {
+            close(set, new int[stateCount()]);
+        }
+    }
+
+    // Add to the bit set every state reachable from it by epsilon transitions,
+    // using the given scratch array (of at least stateCount() elements)
+    public void close(long[] set, int[] stack)
+    {
+        // Depth-first search from every state in the set
+        int top = 0;
+        for (int w = 0; w < set.length; w++)
+        {
+            long word = set[w];
+            while (word != 0)
+            {
+                stack[top++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        while (top > 0)
+        {
+            int s = stack[--top];
+            for (int p = epsStart[s]; p < epsStart[s + 1]; p++)
+            {
+                int dest = epsTarget[p];
+                if (!StateSet.contains(set, dest))
+                {
+                    StateSet.add(set, dest);
+                    stack[top++] = dest;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+// Simulation of an Fsa that determinises it lazily
+// DFA states (epsilon-closed sets of FSA states) and their transitions are
+// computed the first time the simulation reaches them and cached, so only
+// the part of the DFA that is actually used is ever built. The cache holds
+// at most maxStates DFA states; when it is full it is cleared and rebuilt
+// on demand. Later changes to the Fsa are not seen.
+public class LazyDfaSim implements FsaSim
+{
+    // DFA state of the empty set of FSA states
+    public static final int DEAD = SubsetDfa.DEAD;
+
+    private final FsaTables tables;
+    private final SubsetDfa dfa;
+
+    private int current;
+    private boolean isActive;
+
+    private long hits;
+    private long misses;
+    private long flushesBefore;
+
+    public LazyDfaSim(Fsa fsa, int maxStates)
+    {
+        this(fsa.freeze().tables(), maxStates);
+    }
+
+    public LazyDfaSim(FsaTables tables, int maxStates)
+    {
+        if (maxStates < 1)
+        {
+            throw new IllegalArgumentException("Cache must hold at least one state!");
+        }
+
+        this.tables = tables;
+        this.dfa = new SubsetDfa(tables, maxStates);
+        isActive = false;
+    }
+
+    //Reset the simulation to its initial state(s)
+    public void reset()
+    {
+        isActive = true;
+        current = dfa.start();
+    }
+
+    //Take one step in the simulation
+    public void step(String event)
+    {
+        // DFA states are epsilon-closed, so an epsilon step changes nothing
+        if (!isActive || event == null || current == DEAD)
+        {
+            return;
+        }
+
+        int a = tables.symbolOf(event);
+        if (a < 0)
+        {
+            current = DEAD;
+            return;
+        }
+
+        // Use cached transition if there is one
+        int d = dfa.cachedNext(current, a);
+        if (d != SubsetDfa.UNKNOWN)
+        {
+            hits++;
+            current = d;
+            return;
+        }
+
+        // Otherwise compute and cache it
+        misses++;
+        current = dfa.next(current, a);
+    }
+
+    //Returns true if the simulation has recognised
+    //the sequence of events it has been given
+    public boolean isRecognised()
+    {
+        return isActive && dfa.isAccepting(current);
+    }
+
+    // Return the number of steps that used a cached transition
+    public long getHits()
+    {
+        return hits;
+    }
+
+    // Return the number of steps that had to compute a transition
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    // Return the number of times the cache was cleared because it was full
+    public long getFlushes()
+    {
+        return dfa.flushes() - flushesBefore;
+    }
+
+    // Return the number of DFA states currently cached
+    public int getCachedStates()
+    {
+        return dfa.size();
+    }
+
+    // Reset the hit, miss and flush counters to zero
+    public void resetCounters()
+    {
+        hits = 0;
+        misses = 0;
+        flushesBefore = dfa.flushes();
+    }
+}
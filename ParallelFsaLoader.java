@@ -0,0 +1,323 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Loads large text FSA files using several threads
+// The file is split into chunks at line boundaries. The lines of each
+// chunk are counted in parallel so that every chunk knows the number of
+// its first line, then the chunks are parsed in parallel into record
+// buffers. The records are transferred to the Fsa in file order on the
+// calling thread as each chunk becomes ready, and each buffer is released
+// once transferred. Only one more chunk than there are threads is parsed
+// ahead of the transfer, and chunks are at most 64 MB, so the buffers held
+// at once do not grow with the size of the file. The resulting Fsa, and
+// the line reported by any FsaFormatException (always the lowest failing
+// line), are the same as for FsaReaderWriter.read().
+class ParallelFsaLoader
+{
+    // Smallest chunk worth parsing on its own thread
+    private static final long MIN_CHUNK = 1 << 20;
+
+    // Largest chunk, which bounds the memory held by the record buffers of
+    // the chunks parsed ahead of the transfer
+    private static final long MAX_CHUNK = 1 << 26;
+
+    // Chunks parsed ahead of the transfer, beyond one per thread
+    private static final int EXTRA_CHUNKS = 1;
+
+    private final int parallelism;
+
+    public ParallelFsaLoader(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+        this.parallelism = parallelism;
+    }
+
+    //Read the description of a finite-state automaton from the file,
+    //and transfer it to Fsa, f.
+    //If an error is detected, throw an exception that indicates the line
+    //where the error was detected, and has a suitable text message
+    public void read(File file, Fsa f)
+            throws IOException, FsaFormatException
+    {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            // Split file into chunks starting at line boundaries
+            long size = ch.size();
+            int chunks = (int)Math.max((size + MAX_CHUNK - 1) / MAX_CHUNK,
+                    Math.min(4L * parallelism, (size + MIN_CHUNK - 1) / MIN_CHUNK));
+            long[] bounds = new long[Math.max(chunks, 1) + 1];
+            for (int i = 1; i < bounds.length; i++)
+            {
+                bounds[i] = Math.max(bounds[i - 1], lineStart(ch, size * i / (bounds.length - 1), size));
+            }
+
+            // Count lines in each chunk to find the number of its first line
+            List<Callable<Integer>> counts = new ArrayList<>();
+            for (int i = 0; i < bounds.length - 1; i++)
+            {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                counts.add(() -> countLines(ch, from, to));
+            }
+            int[] firstLine = new int[bounds.length];
+            firstLine[0] = 1;
+            List<Future<Integer>> countResults = pool.invokeAll(counts);
+            for (int i = 0; i < countResults.size(); i++)
+            {
+                firstLine[i + 1] = firstLine[i] + get(countResults.get(i));
+            }
+
+            // Parse the first chunks in parallel
+            int chunkCount = bounds.length - 1;
+            List<Future<RecordBuffer>> chunkResults = new ArrayList<>();
+            int window = Math.min(parallelism + EXTRA_CHUNKS, chunkCount);
+            for (int i = 0; i < window; i++)
+            {
+                chunkResults.add(submitChunk(pool, ch, bounds, firstLine, i));
+            }
+
+            // Transfer records to the FSA in file order, notifying its
+            // listeners once at the end
+            FsaParser.Records target = new FsaParser.FsaRecords(f);
+            f.beginUpdate();
+            try
+            {
+                for (int i = 0; i < chunkCount; i++)
+                {
+                    // Start parsing the next chunk, then release this one's
+                    // future so that its buffer can be collected once replayed
+                    if (i + window < chunkCount)
+                    {
+                        chunkResults.add(submitChunk(pool, ch, bounds, firstLine, i + window));
+                    }
+                    RecordBuffer records = get(chunkResults.set(i, null));
+                    records.replay(target);
+                    if (records.error != null)
+                    {
+                        throw records.error;
+                    }
+                }
+            }
+            finally
+            {
+                f.endUpdate();
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading FSA!", ex);
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    // Start parsing chunk i, from bounds[i] to bounds[i + 1]
+    private static Future<RecordBuffer> submitChunk(ForkJoinPool pool, FileChannel ch, long[] bounds, int[] firstLine, int i)
+    {
+        long from = bounds[i];
+        long to = bounds[i + 1];
+        int line = firstLine[i];
+        return pool.submit(() -> parseChunk(ch, from, to, line));
+    }
+
+    // Return the result of a task, rethrowing any exception it threw
+    private static <T> T get(Future<T> future)
+            throws IOException, InterruptedException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Return the start of the first line beginning at or after position p
+    private static long lineStart(FileChannel ch, long p, long size)
+            throws IOException
+    {
+        if (p <= 0)
+        {
+            return 0;
+        }
+
+        // Find the first line terminator ending at or after p
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long position = p - 1;
+        boolean afterCR = false;
+        while (position < size)
+        {
+            buf.clear();
+            int n = ch.read(buf, position);
+            if (n <= 0)
+            {
+                break;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                byte b = buf.get(i);
+                if (afterCR)
+                {
+                    return b == '\n' ? position + i + 1 : position + i;
+                }
+                if (b == '\n')
+                {
+                    return position + i + 1;
+                }
+                afterCR = b == '\r';
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    // Return the number of line terminators (\n, \r or \r\n) in bytes [from, to)
+    private static int countLines(FileChannel ch, long from, long to)
+            throws IOException
+    {
+        MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int length = (int)(to - from);
+        int lines = 0;
+        for (int i = 0; i < length; i++)
+        {
+            byte b = map.get(i);
+            if (b == '\n' || (b == '\r' && (i + 1 == length || map.get(i + 1) != '\n')))
+            {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    // Parse bytes [from, to) into a record buffer
+    // A syntax error is stored in the buffer after the records before it
+    private static RecordBuffer parseChunk(FileChannel ch, long from, long to, int firstLineNr)
+            throws IOException
+    {
+        RecordBuffer records = new RecordBuffer();
+        try
+        {
+            new FsaParser(records).parse(ch, from, to, firstLineNr);
+        }
+        catch (FsaFormatException ex)
+        {
+            records.error = ex;
+        }
+        return records;
+    }
+
+    // Records of one chunk, stored in parallel arrays
+    private static class RecordBuffer implements FsaParser.Records
+    {
+        private static final byte STATE = 0;
+        private static final byte TRANSITION = 1;
+        private static final byte INITIAL = 2;
+        private static final byte FINAL = 3;
+
+        private byte[] types = new byte[1024];
+        private int[] lineNrs = new int[1024];
+        private String[] names = new String[3 * 1024];
+        private int[] coordinates = new int[2 * 1024];
+        private int size = 0;
+
+        // Syntax error that ended the chunk, if any
+        FsaFormatException error;
+
+        public void state(String name, int x, int y, int lineNr)
+        {
+            add(STATE, lineNr, name, null, null);
+            coordinates[2 * size - 2] = x;
+            coordinates[2 * size - 1] = y;
+        }
+
+        public void transition(String from, String event, String to, int lineNr)
+        {
+            add(TRANSITION, lineNr, from, event, to);
+        }
+
+        public void initial(String name, int lineNr)
+        {
+            add(INITIAL, lineNr, name, null, null);
+        }
+
+        public void final_(String name, int lineNr)
+        {
+            add(FINAL, lineNr, name, null, null);
+        }
+
+        // Append a record
+        private void add(byte type, int lineNr, String a, String b, String c)
+        {
+            if (size == types.length)
+            {
+                types = Arrays.copyOf(types, 2 * size);
+                lineNrs = Arrays.copyOf(lineNrs, 2 * size);
+                names = Arrays.copyOf(names, 6 * size);
+                coordinates = Arrays.copyOf(coordinates, 4 * size);
+            }
+            types[size] = type;
+            lineNrs[size] = lineNr;
+            names[3 * size] = a;
+            names[3 * size + 1] = b;
+            names[3 * size + 2] = c;
+            size++;
+        }
+
+        // Pass every record on to the target, in order
+        void replay(FsaParser.Records target)
+                throws FsaFormatException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                switch (types[i])
+                {
+                    case STATE:
+                        target.state(names[3 * i], coordinates[2 * i], coordinates[2 * i + 1], lineNrs[i]);
+                        break;
+                    case TRANSITION:
+                        target.transition(names[3 * i], names[3 * i + 1], names[3 * i + 2], lineNrs[i]);
+                        break;
+                    case INITIAL:
+                        target.initial(names[3 * i], lineNrs[i]);
+                        break;
+                    default:
+                        target.final_(names[3 * i], lineNrs[i]);
+                        break;
+                }
+            }
+        }
+    }
+}
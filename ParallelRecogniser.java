@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Recognises large numbers of traces on several cores
+// The traces are split into blocks that are run against the immutable
+// tables of a CompiledFsa by the threads of a ForkJoinPool. Each block
+// covers whole 64-trace words of the result, so threads never write to
+// shared state.
+public class ParallelRecogniser
+{
+    // Smallest number of traces worth running as a separate task
+    private static final int MIN_BLOCK = 1024;
+
+    private final CompiledFsa fsa;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    // Use a new pool with the given number of threads
+    public ParallelRecogniser(CompiledFsa fsa, int parallelism)
+    {
+        this(fsa, new ForkJoinPool(parallelism), true);
+    }
+
+    // Use an existing pool (which is not shut down by shutdown())
+    public ParallelRecogniser(CompiledFsa fsa, ForkJoinPool pool)
+    {
+        this(fsa, pool, false);
+    }
+
+    private ParallelRecogniser(CompiledFsa fsa, ForkJoinPool pool, boolean ownsPool)
+    {
+        this.fsa = fsa;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    // Return the number of threads used
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    // Run every trace through the FSA
+    // Returns a set whose bit i is set if trace i is recognised
+    public BitSet recogniseAll(List<? extends List<String>> traces)
+    {
+        // Splitting needs fast indexed access
+        if (!(traces instanceof RandomAccess))
+        {
+            traces = new ArrayList<>(traces);
+        }
+
+        // Aim for several blocks per thread so that idle threads can steal work
+        int words = (traces.size() + 63) >>> 6;
+        int blockWords = Math.max(MIN_BLOCK >>> 6, words / (8 * pool.getParallelism()));
+        long[] result = new long[words];
+        pool.invoke(new RecogniseTask(traces, result, 0, words, blockWords));
+        return BitSet.valueOf(result);
+    }
+
+    // Shut down the thread pool if it was created by this recogniser
+    public void shutdown()
+    {
+        if (ownsPool)
+        {
+            pool.shutdown();
+        }
+    }
+
+    // Recognises the traces covered by result words [from, to)
+    private class RecogniseTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends List<String>> traces;
+        private final long[] result;
+        private final int from;
+        private final int to;
+        private final int blockWords;
+
+        RecogniseTask(List<? extends List<String>> traces, long[] result, int from, int to, int blockWords)
+        {
+            this.traces = traces;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.blockWords = blockWords;
+        }
+
+        @Override
+        protected void compute()
+        {
+            // Split large ranges in half
+            if (to - from > blockWords)
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RecogniseTask(traces, result, from, mid, blockWords),
+                        new RecogniseTask(traces, result, mid, to, blockWords));
+                return;
+            }
+
+            // Run each trace in the range, building result words locally
+            int size = traces.size();
+            for (int w = from; w < to; w++)
+            {
+                long word = 0;
+                int end = Math.min(size, (w + 1) << 6);
+                for (int i = w << 6; i < end; i++)
+                {
+                    if (fsa.recognises(traces.get(i)))
+                    {
+                        word |= 1L << i;
+                    }
+                }
+                result[w] = word;
+            }
+        }
+    }
+}
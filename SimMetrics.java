@@ -0,0 +1,17 @@
+//Receives figures about the steps of a simulation
+//Only FsaImpl's own simulation (FsaImpl.setMetrics) reports them. The
+//engines built from tables (CompiledFsa, BitSetFsaSim and LazyDfaSim)
+//report nothing, so that their steps stay as cheap as possible;
+//LazyDfaSim keeps its own cache hit, miss and flush counters.
+public interface SimMetrics
+{
+    //Called whenever a simulation has been reset
+    public void simulationReset();
+
+    //Called after each step of a simulation with the event (null for an
+    //epsilon-only step), the number of current states after the step, the
+    //number of rounds needed to follow epsilon transitions, the number of
+    //transitions examined and the time the step took in nanoseconds
+    public void stepTaken(String event, int activeStates, int epsilonIterations,
+                          int transitionsExamined, long nanos);
+}
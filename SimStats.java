@@ -0,0 +1,153 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects counters and histograms of simulation steps
+// Pass to FsaImpl.setMetrics() to start collecting, and optionally
+// register() it to read the figures through JMX (e.g. with jconsole).
+// One SimStats may be shared by several simulations on different threads.
+public class SimStats implements SimMetrics, SimStatsMBean
+{
+    // Histogram buckets: one for zero and one per bit of a long
+    private static final int BUCKETS = 65;
+
+    private final LongAdder resets = new LongAdder();
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder transitionsExamined = new LongAdder();
+    private final LongAdder epsilonIterations = new LongAdder();
+    private final LongAdder activeStates = new LongAdder();
+    private final LongAdder stepNanos = new LongAdder();
+    private final LongAccumulator maxActiveStates = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxStepNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray activeStatesHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray stepNanosHistogram = new AtomicLongArray(BUCKETS);
+
+    public SimStats()
+    {
+
+    }
+
+    // Register this object with the platform MBean server under the name
+    // FsaEditor:type=SimStats,name="<name>"
+    public ObjectName register(String name)
+            throws JMException
+    {
+        ObjectName objectName = new ObjectName("FsaEditor:type=SimStats,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void simulationReset()
+    {
+        resets.increment();
+    }
+
+    public void stepTaken(String event, int activeStates, int epsilonIterations,
+                          int transitionsExamined, long nanos)
+    {
+        steps.increment();
+        this.activeStates.add(activeStates);
+        this.epsilonIterations.add(epsilonIterations);
+        this.transitionsExamined.add(transitionsExamined);
+        stepNanos.add(nanos);
+        maxActiveStates.accumulate(activeStates);
+        maxStepNanos.accumulate(nanos);
+        activeStatesHistogram.incrementAndGet(bucket(activeStates));
+        stepNanosHistogram.incrementAndGet(bucket(nanos));
+    }
+
+    public long getResets()
+    {
+        return resets.sum();
+    }
+
+    public long getSteps()
+    {
+        return steps.sum();
+    }
+
+    public long getTransitionsExamined()
+    {
+        return transitionsExamined.sum();
+    }
+
+    public long getEpsilonIterations()
+    {
+        return epsilonIterations.sum();
+    }
+
+    public double getMeanActiveStates()
+    {
+        long n = steps.sum();
+        return n == 0 ? 0 : (double)activeStates.sum() / n;
+    }
+
+    public long getMaxActiveStates()
+    {
+        return maxActiveStates.get();
+    }
+
+    public double getMeanStepNanos()
+    {
+        long n = steps.sum();
+        return n == 0 ? 0 : (double)stepNanos.sum() / n;
+    }
+
+    public long getMaxStepNanos()
+    {
+        return maxStepNanos.get();
+    }
+
+    public long[] getStepNanosHistogram()
+    {
+        return toArray(stepNanosHistogram);
+    }
+
+    public long[] getActiveStatesHistogram()
+    {
+        return toArray(activeStatesHistogram);
+    }
+
+    public void clear()
+    {
+        resets.reset();
+        steps.reset();
+        transitionsExamined.reset();
+        epsilonIterations.reset();
+        activeStates.reset();
+        stepNanos.reset();
+        maxActiveStates.reset();
+        maxStepNanos.reset();
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            activeStatesHistogram.set(i, 0);
+            stepNanosHistogram.set(i, 0);
+        }
+    }
+
+    // Return the histogram bucket of a value: 0 for zero (or less),
+    // otherwise the number of bits needed to write the value
+    private static int bucket(long value)
+    {
+        return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    // Return the histogram without its empty top buckets
+    private static long[] toArray(AtomicLongArray histogram)
+    {
+        int length = BUCKETS;
+        while (length > 0 && histogram.get(length - 1) == 0)
+        {
+            length--;
+        }
+        long[] counts = new long[length];
+        for (int i = 0; i < length; i++)
+        {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+}
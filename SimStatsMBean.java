@@ -0,0 +1,40 @@
+// Management interface of SimStats, as seen through JMX
+public interface SimStatsMBean
+{
+    //Number of simulation resets
+    public long getResets();
+
+    //Number of simulation steps
+    public long getSteps();
+
+    //Total number of transitions examined by all steps
+    public long getTransitionsExamined();
+
+    //Total number of epsilon-closure rounds of all steps
+    public long getEpsilonIterations();
+
+    //Average number of current states after a step
+    public double getMeanActiveStates();
+
+    //Largest number of current states after a step
+    public long getMaxActiveStates();
+
+    //Average time of a step in nanoseconds
+    public double getMeanStepNanos();
+
+    //Longest time of a step in nanoseconds
+    public long getMaxStepNanos();
+
+    //Number of steps by time; entry 0 counts steps too short to measure,
+    //entry i > 0 steps that took less than 2^i nanoseconds (and at least
+    //2^(i-1))
+    public long[] getStepNanosHistogram();
+
+    //Number of steps by current states after the step; entry 0 counts steps
+    //with no current states, entry i > 0 steps with less than 2^i current
+    //states (and at least 2^(i-1))
+    public long[] getActiveStatesHistogram();
+
+    //Set all counters back to zero
+    public void clear();
+}
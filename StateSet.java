@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+// Immutable set of densely numbered states, stored as a bit set
+// Used as a hash key when states of an NFA are grouped into DFA states
+public final class StateSet
+{
+    private final long[] words;
+    private final int hash;
+
+    public StateSet(long[] words)
+    {
+        this.words = words;
+        this.hash = Arrays.hashCode(words);
+    }
+
+    // Return the bit set backing this state set
+    public long[] words()
+    {
+        return words;
+    }
+
+    // Return the number of 64-bit words needed to hold n states
+    public static int wordCount(int n)
+    {
+        return (n + 63) >>> 6;
+    }
+
+    // Indicate if state s is in the bit set
+    public static boolean contains(long[] set, int s)
+    {
+        return (set[s >>> 6] & (1L << s)) != 0;
+    }
+
+    // Add state s to the bit set
+    public static void add(long[] set, int s)
+    {
+        set[s >>> 6] |= 1L << s;
+    }
+
+    // Indicate if the bit set contains no states
+    public static boolean isEmpty(long[] set)
+    {
+        for (long word : set)
+        {
+            if (word != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Indicate if the two bit sets have any state in common
+    public static boolean intersects(long[] a, long[] b)
+    {
+        for (int i = 0; i < a.length; i++)
+        {
+            if ((a[i] & b[i]) != 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof StateSet && hash == ((StateSet)o).hash && Arrays.equals(words, ((StateSet)o).words);
+    }
+}
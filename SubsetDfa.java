@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// DFA of the FSA in an FsaTables, determinised on demand by subset
+// construction
+// DFA states (epsilon-closed sets of FSA states) and their transitions are
+// computed the first time they are asked for and kept, so only the part of
+// the DFA that is actually used is ever built. At most maxStates DFA states
+// are kept; when that many are held they are all cleared and rebuilt on
+// demand, which makes earlier DFA state numbers meaningless.
+class SubsetDfa
+{
+    // DFA state of the empty set of FSA states
+    static final int DEAD = -1;
+
+    // Transition that has not been computed yet
+    static final int UNKNOWN = -2;
+
+    private final FsaTables tables;
+    private final int symbolCount;
+    private final int maxStates;
+    private final long[] startSet;
+    private final int[] stack;
+
+    private final HashMap<StateSet, Integer> ids = new HashMap<>();
+    private final ArrayList<long[]> sets = new ArrayList<>();
+    private int[] next = new int[0];
+    private boolean[] accepting = new boolean[0];
+    private long flushes;
+
+    SubsetDfa(FsaTables tables, int maxStates)
+    {
+        this.tables = tables;
+        this.symbolCount = tables.symbolCount();
+        this.maxStates = maxStates;
+        this.stack = new int[tables.stateCount()];
+
+        startSet = tables.initialSet();
+        tables.close(startSet, stack);
+    }
+
+    // Return the tables the DFA is built from
+    FsaTables tables()
+    {
+        return tables;
+    }
+
+    // Return the DFA state of the epsilon closure of the initial states
+    int start()
+    {
+        return lookup(startSet);
+    }
+
+    // Return the successor of DFA state d on symbol a, computing it if needed
+    // The transition is not kept if the DFA states were cleared meanwhile
+    int next(int d, int a)
+    {
+        if (d == DEAD)
+        {
+            return DEAD;
+        }
+        int e = next[d * symbolCount + a];
+        if (e == UNKNOWN)
+        {
+            long flushesBefore = flushes;
+            e = lookup(successor(sets.get(d), a));
+            if (flushes == flushesBefore)
+            {
+                next[d * symbolCount + a] = e;
+            }
+        }
+        return e;
+    }
+
+    // Return the successor of DFA state d on symbol a if it has been
+    // computed, otherwise UNKNOWN
+    int cachedNext(int d, int a)
+    {
+        return d == DEAD ? DEAD : next[d * symbolCount + a];
+    }
+
+    // Indicate if DFA state d contains a final state
+    boolean isAccepting(int d)
+    {
+        return d != DEAD && accepting[d];
+    }
+
+    // Return the number of DFA states currently kept
+    int size()
+    {
+        return sets.size();
+    }
+
+    // Return the number of times the DFA states were cleared
+    long flushes()
+    {
+        return flushes;
+    }
+
+    // Return the DFA state for the given set, adding it if it is new
+    // If maxStates DFA states are held they are cleared first
+    private int lookup(long[] set)
+    {
+        if (StateSet.isEmpty(set))
+        {
+            return DEAD;
+        }
+
+        StateSet key = new StateSet(set);
+        Integer id = ids.get(key);
+        if (id != null)
+        {
+            return id;
+        }
+
+        // Clear DFA states if full
+        if (sets.size() >= maxStates)
+        {
+            ids.clear();
+            sets.clear();
+            flushes++;
+        }
+
+        // Grow transition table if needed
+        int d = sets.size();
+        if (d == accepting.length)
+        {
+            int capacity = Math.min(Math.max(16, 2 * d), maxStates);
+            next = Arrays.copyOf(next, capacity * symbolCount);
+            accepting = Arrays.copyOf(accepting, capacity);
+        }
+
+        // Add new DFA state
+        ids.put(key, d);
+        sets.add(set);
+        Arrays.fill(next, d * symbolCount, (d + 1) * symbolCount, UNKNOWN);
+        accepting[d] = StateSet.intersects(set, tables.finalSet());
+        return d;
+    }
+
+    // Return the epsilon-closed set of states reached from set on symbol a
+    private long[] successor(long[] set, int a)
+    {
+        long[] target = new long[set.length];
+        for (int w = 0; w < set.length; w++)
+        {
+            long word = set[w];
+            while (word != 0)
+            {
+                int s = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                for (int e = tables.edgeStart(s); e < tables.edgeStart(s + 1); e++)
+                {
+                    if (tables.edgeSymbol(e) == a)
+                    {
+                        StateSet.add(target, tables.edgeTarget(e));
+                    }
+                }
+            }
+        }
+        tables.close(target, stack);
+        return target;
+    }
+}
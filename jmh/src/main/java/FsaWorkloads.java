@@ -0,0 +1,233 @@
+import fsabench.Workload;
+import fsabench.WorkloadFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Benchmarked operations on the FSA classes, for the JMH benchmarks in
+// package fsabench, which create them through WorkloadFactory
+// Machines are made by FsaGenerator with a fixed seed, so every run of a
+// benchmark measures the same machine and trace.
+public class FsaWorkloads implements WorkloadFactory
+{
+    private static final long SEED = 42;
+
+    // Cache size of the lazy DFA engine
+    private static final int LAZY_CACHE = 10000;
+
+    public FsaWorkloads()
+    {
+
+    }
+
+    // Run a random trace of the given length through a random machine with
+    // the given number of transitions and epsilon-transitions per state,
+    // using the named engine: fsa (FsaImpl), nfa (BitSetFsaSim),
+    // dfa (CompiledFsa) or lazy (LazyDfaSim)
+    // The result counts the steps after which the trace was recognised
+    public Workload simulate(String engine, int states, int degree, double epsilonDensity, int traceLength)
+    {
+        FsaGenerator generator = new FsaGenerator(SEED, 2);
+        FsaImpl fsa = generator.generate("random", states, degree, epsilonDensity);
+        String[] trace = generator.trace(fsa, traceLength).toArray(new String[0]);
+        FsaSim sim;
+        switch (engine)
+        {
+            case "fsa":
+                sim = fsa;
+                break;
+            case "nfa":
+                sim = new BitSetFsaSim(fsa);
+                break;
+            case "dfa":
+                sim = new CompiledFsa(fsa);
+                break;
+            case "lazy":
+                sim = new LazyDfaSim(fsa, LAZY_CACHE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine " + engine + "!");
+        }
+
+        return () ->
+        {
+            long recognised = 0;
+            sim.reset();
+            for (String event : trace)
+            {
+                sim.step(event);
+                if (sim.isRecognised())
+                {
+                    recognised++;
+                }
+            }
+            return recognised;
+        };
+    }
+
+    // Recognise a batch of random traces at once with CompiledFsa
+    // The result counts the recognised traces
+    public Workload recogniseAll(int states, int degree, double epsilonDensity, int traceLength, int traces)
+    {
+        FsaGenerator generator = new FsaGenerator(SEED, 2);
+        FsaImpl fsa = generator.generate("random", states, degree, epsilonDensity);
+        CompiledFsa dfa = fsa.freeze().compile();
+        List<List<String>> batch = new ArrayList<>();
+        for (int i = 0; i < traces; i++)
+        {
+            batch.add(generator.trace(fsa, traceLength));
+        }
+        return () -> dfa.recogniseAll(batch).cardinality();
+    }
+
+    // Read a random machine with the given number of states (two transitions
+    // each) from a file, using the named loader: reader (FsaReaderWriter
+    // through a Reader), mmap (FsaReaderWriter.read(File), which hands very
+    // large files to ParallelFsaLoader), parallel (ParallelFsaLoader on every
+    // processor) or binary (FsaBinaryReaderWriter)
+    // The result is the number of states read
+    public Workload load(String loader, int states, double epsilonDensity) throws Exception
+    {
+        FsaImpl fsa = new FsaGenerator(SEED, 2).generate("random", states, 2, epsilonDensity);
+        File file = File.createTempFile("fsabench", loader.equals("binary") ? ".fsab" : ".fsa");
+        file.deleteOnExit();
+        FsaStreamIo.forFile(file).write(file, fsa);
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        switch (loader)
+        {
+            case "reader":
+                return () ->
+                {
+                    FsaImpl f = new FsaImpl();
+                    new FsaReaderWriter().read(new InputStreamReader(new FileInputStream(file)), f);
+                    return f.getStates().size();
+                };
+            case "mmap":
+                return () ->
+                {
+                    FsaImpl f = new FsaImpl();
+                    new FsaReaderWriter().read(file, f);
+                    return f.getStates().size();
+                };
+            case "parallel":
+                return () ->
+                {
+                    FsaImpl f = new FsaImpl();
+                    new ParallelFsaLoader(processors).read(file, f);
+                    return f.getStates().size();
+                };
+            case "binary":
+                return () ->
+                {
+                    FsaImpl f = new FsaImpl();
+                    new FsaBinaryReaderWriter().read(file, f);
+                    return f.getStates().size();
+                };
+            default:
+                throw new IllegalArgumentException("Unknown loader " + loader + "!");
+        }
+    }
+
+    // Write a random machine with the given number of states (two transitions
+    // each) in the named format, text or binary, to a stream that discards it
+    // The result is the number of states written
+    public Workload save(String format, int states, double epsilonDensity)
+    {
+        FsaImpl fsa = new FsaGenerator(SEED, 2).generate("random", states, 2, epsilonDensity);
+        switch (format)
+        {
+            case "text":
+                return () ->
+                {
+                    new FsaReaderWriter().write(Writer.nullWriter(), fsa);
+                    return fsa.getStates().size();
+                };
+            case "binary":
+                return () ->
+                {
+                    new FsaBinaryReaderWriter().write(OutputStream.nullOutputStream(), fsa);
+                    return fsa.getStates().size();
+                };
+            default:
+                throw new IllegalArgumentException("Unknown format " + format + "!");
+        }
+    }
+
+    // Look up every state of a machine with the given number of states by name
+    // The result sums the x positions of the states found
+    public Workload findState(int states)
+    {
+        FsaImpl fsa = new FsaGenerator(SEED, 2).generate("chain", states, 0, 0);
+        String[] names = new String[states];
+        for (int i = 0; i < states; i++)
+        {
+            names[i] = "s" + i;
+        }
+        return () ->
+        {
+            long sum = 0;
+            for (String name : names)
+            {
+                sum += fsa.findState(name).getXpos();
+            }
+            return sum;
+        };
+    }
+
+    // Add the given number of states to an empty machine
+    // The result is the number of states added
+    public Workload newState(int states)
+    {
+        String[] names = new String[states];
+        for (int i = 0; i < states; i++)
+        {
+            names[i] = "s" + i;
+        }
+        return () ->
+        {
+            FsaImpl fsa = new FsaImpl();
+            for (int i = 0; i < states; i++)
+            {
+                fsa.newState(names[i], i % 1000, i / 1000);
+            }
+            return fsa.getStates().size();
+        };
+    }
+
+    // Add a chain of transitions to a machine that already has its states;
+    // prepare() makes a fresh machine before each run
+    // The result is the number of transitions added
+    public Workload newTransition(int states)
+    {
+        return new Workload()
+        {
+            private FsaImpl fsa;
+            private State[] chain;
+
+            public void prepare()
+            {
+                fsa = new FsaImpl();
+                chain = new State[states];
+                for (int i = 0; i < states; i++)
+                {
+                    chain[i] = fsa.newState("s" + i, i % 1000, i / 1000);
+                }
+            }
+
+            public long run()
+            {
+                for (int i = 0; i < states; i++)
+                {
+                    fsa.newTransition(chain[i], chain[(i + 1) % states], "a");
+                }
+                return states;
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package fsabench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to run a random trace through the determinised engines, dfa
+// (CompiledFsa) and lazy (LazyDfaSim)
+// The machines have one transition per state, so that their DFAs stay
+// small enough to build in full.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledSimulationBenchmark
+{
+    @Param({"dfa", "lazy"})
+    public String engine;
+
+    @Param({"1000", "10000"})
+    public int states;
+
+    // Epsilon-transitions per state
+    @Param({"0.0", "0.1"})
+    public double epsilonDensity;
+
+    @Param({"100"})
+    public int traceLength;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        workload = Workloads.factory().simulate(engine, states, 1, epsilonDensity, traceLength);
+    }
+
+    @Benchmark
+    public long simulate() throws Exception
+    {
+        return workload.run();
+    }
+}
@@ -0,0 +1,77 @@
+package fsabench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to build and search an FsaImpl: adding n states, adding n
+// transitions between existing states, and looking up n states by name
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark
+{
+    @Param({"10000", "100000"})
+    public int states;
+
+    private Workload newState;
+    private Workload findState;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        newState = Workloads.factory().newState(states);
+        findState = Workloads.factory().findState(states);
+    }
+
+    @Benchmark
+    public long newState() throws Exception
+    {
+        return newState.run();
+    }
+
+    @Benchmark
+    public long newTransition(Transitions t) throws Exception
+    {
+        return t.workload.run();
+    }
+
+    @Benchmark
+    public long findState() throws Exception
+    {
+        return findState.run();
+    }
+
+    // Each call of newTransition() needs a machine without transitions
+    @State(Scope.Benchmark)
+    public static class Transitions
+    {
+        private Workload workload;
+
+        @Setup(Level.Trial)
+        public void setUp(ConstructionBenchmark benchmark) throws Exception
+        {
+            workload = Workloads.factory().newTransition(benchmark.states);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() throws Exception
+        {
+            workload.prepare();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package fsabench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to read a random machine with two transitions per state from a
+// file, with each loader
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark
+{
+    @Param({"100000", "1000000"})
+    public int states;
+
+    @Param({"0.0"})
+    public double epsilonDensity;
+
+    // Loader: reader (FsaReaderWriter through a Reader), mmap
+    // (FsaReaderWriter.read(File)), parallel (ParallelFsaLoader) or binary
+    // (FsaBinaryReaderWriter)
+    @Param({"reader", "mmap", "parallel", "binary"})
+    public String loader;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        workload = Workloads.factory().load(loader, states, epsilonDensity);
+    }
+
+    @Benchmark
+    public long load() throws Exception
+    {
+        return workload.run();
+    }
+}
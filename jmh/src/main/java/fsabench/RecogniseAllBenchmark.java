@@ -0,0 +1,53 @@
+package fsabench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time for CompiledFsa to recognise a batch of random traces at once
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecogniseAllBenchmark
+{
+    @Param({"1000", "10000"})
+    public int states;
+
+    // Epsilon-transitions per state
+    @Param({"0.0", "0.1"})
+    public double epsilonDensity;
+
+    @Param({"100"})
+    public int traceLength;
+
+    @Param({"1000"})
+    public int traces;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        workload = Workloads.factory().recogniseAll(states, 1, epsilonDensity, traceLength, traces);
+    }
+
+    @Benchmark
+    public long recogniseAll() throws Exception
+    {
+        return workload.run();
+    }
+}
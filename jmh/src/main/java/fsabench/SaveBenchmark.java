@@ -0,0 +1,51 @@
+package fsabench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to write a random machine with two transitions per state in each
+// format, to a stream that discards it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark
+{
+    @Param({"100000", "1000000"})
+    public int states;
+
+    @Param({"0.0"})
+    public double epsilonDensity;
+
+    // Format: text (FsaReaderWriter) or binary (FsaBinaryReaderWriter)
+    @Param({"text", "binary"})
+    public String format;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        workload = Workloads.factory().save(format, states, epsilonDensity);
+    }
+
+    @Benchmark
+    public long save() throws Exception
+    {
+        return workload.run();
+    }
+}
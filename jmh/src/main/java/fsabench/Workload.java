@@ -0,0 +1,20 @@
+package fsabench;
+
+// One benchmarked operation on the FSA editor's classes
+// The editor's classes are in the default package, which code in a named
+// package (as JMH requires for benchmarks) can not refer to, so each
+// operation is prepared by FsaWorkloads in the default package and called
+// through this interface.
+public interface Workload
+{
+    //Called before each call of run() that needs fresh input,
+    //outside the measured time
+    public default void prepare() throws Exception
+    {
+
+    }
+
+    //Run the operation once, returning a result that depends on all of
+    //its work, for the benchmark to consume
+    public long run() throws Exception;
+}
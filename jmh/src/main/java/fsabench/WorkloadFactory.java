@@ -0,0 +1,21 @@
+package fsabench;
+
+// Makes the benchmarked operations on the FSA editor's classes
+// Implemented by FsaWorkloads in the default package; see Workload for why.
+// Parameters are described there.
+public interface WorkloadFactory
+{
+    public Workload simulate(String engine, int states, int degree, double epsilonDensity, int traceLength);
+
+    public Workload recogniseAll(int states, int degree, double epsilonDensity, int traceLength, int traces);
+
+    public Workload load(String loader, int states, double epsilonDensity) throws Exception;
+
+    public Workload save(String format, int states, double epsilonDensity);
+
+    public Workload findState(int states);
+
+    public Workload newState(int states);
+
+    public Workload newTransition(int states);
+}
@@ -0,0 +1,33 @@
+package fsabench;
+
+// Gives the benchmarks the WorkloadFactory implemented by FsaWorkloads
+// Code in a named package can not name a class in the default package, so
+// FsaWorkloads is found by name once; every other call is checked by the
+// compiler through WorkloadFactory.
+final class Workloads
+{
+    private static final WorkloadFactory FACTORY = load();
+
+    private Workloads()
+    {
+
+    }
+
+    // Return the factory of the benchmarked operations
+    static WorkloadFactory factory()
+    {
+        return FACTORY;
+    }
+
+    private static WorkloadFactory load()
+    {
+        try
+        {
+            return (WorkloadFactory)Class.forName("FsaWorkloads").getConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            throw new IllegalStateException("FsaWorkloads is missing from the benchmark build!", ex);
+        }
+    }
+}